@@ -0,0 +1,141 @@
+package com.example.android.baking.player;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.util.Util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/* Plays a local DASH manifest with a 240p and a 720p rendition and checks which one the player
+ * starts with. Only the manifest is served, selection happens before any segment is needed. */
+@RunWith(AndroidJUnit4.class)
+public class AdaptiveStreamingTest {
+
+    private static final String MANIFEST =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" type=\"static\" minBufferTime=\"PT2S\"\n" +
+            "     mediaPresentationDuration=\"PT60S\" profiles=\"urn:mpeg:dash:profile:isoff-live:2011\">\n" +
+            "  <Period>\n" +
+            "    <AdaptationSet mimeType=\"video/mp4\" segmentAlignment=\"true\">\n" +
+            "      <SegmentTemplate timescale=\"1000\" duration=\"4000\" startNumber=\"1\"\n" +
+            "          initialization=\"$RepresentationID$/init.mp4\" media=\"$RepresentationID$/$Number$.m4s\"/>\n" +
+            "      <Representation id=\"240p\" codecs=\"avc1.42c01e\" width=\"426\" height=\"240\" bandwidth=\"300000\"/>\n" +
+            "      <Representation id=\"720p\" codecs=\"avc1.4d401f\" width=\"1280\" height=\"720\" bandwidth=\"3000000\"/>\n" +
+            "    </AdaptationSet>\n" +
+            "  </Period>\n" +
+            "</MPD>\n";
+
+    private Context mContext;
+    private MockWebServer mServer;
+    private int mNetworkType;
+
+    @Before
+    public void startServer() throws Exception {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mNetworkType = Util.getNetworkType(mContext);
+        // Saved estimates are kept per connection type, so the device needs a known one
+        assumeTrue(mNetworkType != C.NETWORK_TYPE_UNKNOWN && mNetworkType != C.NETWORK_TYPE_OFFLINE);
+
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().endsWith(".mpd"))
+                    return new MockResponse().setBody(MANIFEST).setHeader("Content-Type", "application/dash+xml");
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                PlayerHolder.release();
+                PlayerHolder.setViewportSize(mContext, Integer.MAX_VALUE, Integer.MAX_VALUE);
+            }
+        });
+        if (mServer != null) mServer.shutdown();
+    }
+
+    @Test
+    public void lowSavedEstimate_startsWithSmallRendition() throws Exception {
+        BandwidthEstimates.setSavedEstimate(mContext, mNetworkType, 500_000);
+        assertEquals(240, selectVideoFormat(Integer.MAX_VALUE, Integer.MAX_VALUE).height);
+    }
+
+    @Test
+    public void highSavedEstimate_startsWithLargeRendition() throws Exception {
+        BandwidthEstimates.setSavedEstimate(mContext, mNetworkType, 20_000_000);
+        assertEquals(720, selectVideoFormat(Integer.MAX_VALUE, Integer.MAX_VALUE).height);
+    }
+
+    @Test
+    public void smallPlayer_capsLargeRendition() throws Exception {
+        BandwidthEstimates.setSavedEstimate(mContext, mNetworkType, 20_000_000);
+        assertEquals(240, selectVideoFormat(320, 180).height);
+    }
+
+    /* Prepares the manifest on a fresh player and returns the video format it selects first */
+    private Format selectVideoFormat(final int viewportWidth, final int viewportHeight) throws Exception {
+        final Uri uri = Uri.parse(mServer.url("/step/video.mpd").toString());
+        final CountDownLatch selected = new CountDownLatch(1);
+        final AtomicReference<Format> format = new AtomicReference<>();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                PlayerHolder.release();
+                PlayerHolder.setViewportSize(mContext, viewportWidth, viewportHeight);
+                PlayerHolder.getPlayer(mContext).addListener(new Player.EventListener() {
+                    @Override
+                    public void onTracksChanged(TrackGroupArray trackGroups, TrackSelectionArray trackSelections) {
+                        for (int i = 0; i < trackSelections.length; i++){
+                            TrackSelection selection = trackSelections.get(i);
+                            if (selection == null) continue;
+                            Format selectedFormat = selection.getSelectedFormat();
+                            if (selectedFormat.height != Format.NO_VALUE){
+                                format.set(selectedFormat);
+                                selected.countDown();
+                            }
+                        }
+                    }
+                });
+                PlayerHolder.prepare(mContext, uri);
+            }
+        });
+
+        assertTrue("No video track selected", selected.await(10, TimeUnit.SECONDS));
+        assertNotNull(format.get());
+        return format.get();
+    }
+}
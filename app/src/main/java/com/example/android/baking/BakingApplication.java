@@ -0,0 +1,100 @@
+package com.example.android.baking;
+
+import android.app.Application;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.example.android.baking.services.CatalogSyncWorker;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.BundleSizeLogger;
+import com.example.android.baking.utils.ImageUtils;
+import com.example.android.baking.utils.JsonUtils;
+import com.example.android.baking.utils.MediaCacheUtils;
+import com.example.android.baking.utils.NetworkUtils;
+import com.example.android.baking.utils.StartupTrace;
+
+import java.io.IOException;
+
+import okhttp3.Cache;
+import timber.log.Timber;
+
+/* Starts the work the first screen depends on in parallel on background threads, and
+ * leaves everything the first screen does not need until the main thread goes idle */
+public class BakingApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTrace.markProcessStart();
+        StartupTrace.section(StartupTrace.APPLICATION_CREATE, new Runnable() {
+            @Override
+            public void run() {
+                // Set up Timber once per process
+                if (BuildConfig.DEBUG){
+                    Timber.plant(new Timber.DebugTree());
+                    BundleSizeLogger.install(BakingApplication.this);
+                }
+
+                AppExecutors executors = AppExecutors.getInstance();
+                executors.networkIO().execute(new WarmHttp());
+                executors.computation().execute(new WarmJson());
+
+                Looper.myQueue().addIdleHandler(new DeferredInit());
+            }
+        });
+    }
+
+    /* Builds the http client, opens its disk cache index and builds retrofit */
+    private class WarmHttp implements Runnable {
+        @Override
+        public void run() {
+            StartupTrace.section(StartupTrace.WARM_HTTP, new Runnable() {
+                @Override
+                public void run() {
+                    Cache cache = NetworkUtils.getClient(BakingApplication.this).cache();
+                    try {
+                        if (cache != null) cache.initialize();
+                    } catch (IOException e){
+                        Timber.d(e, "Could not open the http cache ahead of time");
+                    }
+                    NetworkUtils.getRetrofitInstance(BakingApplication.this);
+                }
+            });
+        }
+    }
+
+    /* Loads the gson adapters so the first parse does not pay for class loading */
+    private static class WarmJson implements Runnable {
+        @Override
+        public void run() {
+            StartupTrace.section(StartupTrace.WARM_JSON, new Runnable() {
+                @Override
+                public void run() {
+                    JsonUtils.getGson();
+                }
+            });
+        }
+    }
+
+    /* Runs once the first frames are drawn, for things only later screens use */
+    private class DeferredInit implements MessageQueue.IdleHandler {
+        @Override
+        public boolean queueIdle() {
+            AppExecutors.getInstance().diskIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    StartupTrace.section(StartupTrace.DEFERRED_INIT, new Runnable() {
+                        @Override
+                        public void run() {
+                            ImageUtils.getPicasso(BakingApplication.this);
+                            MediaCacheUtils.getCache(BakingApplication.this);
+                            CatalogSyncWorker.schedule(BakingApplication.this);
+                        }
+                    });
+                }
+            });
+            // Only needed once
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.android.baking;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.adapters.PantryMatchAdapter;
+import com.example.android.baking.adapters.RecipeAdapter;
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
+import com.example.android.baking.pantry.PantryMatch;
+import com.example.android.baking.pantry.PantryMatcher;
+import com.example.android.baking.utils.AppExecutors;
+
+import java.util.Arrays;
+import java.util.List;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+import timber.log.Timber;
+
+/* Ranks recipes by how many of their ingredients are already on hand */
+public class PantryActivity extends AppCompatActivity implements
+        RecipeAdapter.RecipeAdapterOnClickHandler, RecipeRepository.RecipesCallback {
+
+    private static final String PANTRY_PREFS = "pantry";
+    private static final String KEY_ITEMS = "items";
+    private static final int MAX_MATCHES = 50;
+
+    @BindView(R.id.pantry_edit_text) EditText mPantryEditText;
+    @BindView(R.id.pantry_recyclerview) RecyclerView mMatchRecyclerView;
+    @BindView(R.id.pantry_progress_bar) ProgressBar mProgressBar;
+
+    private PantryMatchAdapter mAdapter;
+    private final AppExecutors mExecutors = AppExecutors.getInstance();
+
+    // Only touched from the main thread, the matcher itself is immutable
+    private PantryMatcher mMatcher;
+    private Recipe[] mMatcherRecipes;
+    private int mQueryGeneration;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_pantry);
+        ButterKnife.bind(this);
+
+        mMatchRecyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mAdapter = new PantryMatchAdapter(this, this);
+        mMatchRecyclerView.setAdapter(mAdapter);
+
+        // The pantry is kept between visits
+        if (savedInstanceState == null)
+            mPantryEditText.setText(getPreferences().getString(KEY_ITEMS, ""));
+        mPantryEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                getPreferences().edit().putString(KEY_ITEMS, s.toString()).apply();
+                match();
+            }
+        });
+
+        RecipeRepository.getInstance(this).loadRecipes(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RecipeRepository.getInstance(this).removeCallback(this);
+    }
+
+    /* Builds the ingredient index in the background whenever the catalog changes */
+    @Override
+    public void onRecipesLoaded(final Recipe[] recipes, ChangeSet changes) {
+        if (recipes == mMatcherRecipes) return;
+        mMatcherRecipes = recipes;
+        mExecutors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                final PantryMatcher matcher = new PantryMatcher(recipes);
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (recipes != mMatcherRecipes) return;
+                        mMatcher = matcher;
+                        mProgressBar.setVisibility(View.INVISIBLE);
+                        match();
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void onRecipesUnavailable(Throwable t) {
+        Timber.d("No recipes to match: %s", t.getMessage());
+        mProgressBar.setVisibility(View.INVISIBLE);
+    }
+
+    @Override
+    public void onClick(Recipe clickedRecipe) {
+        Intent intent = new Intent(this, StepsActivity.class);
+        intent.putExtra(RecipeActivity.RECIPE_ID_KEY, clickedRecipe.getId());
+        startActivity(intent);
+    }
+
+    /* Matches the pantry off the main thread, the latest text wins */
+    private void match(){
+        final PantryMatcher matcher = mMatcher;
+        if (matcher == null) return;
+        final List<String> items = Arrays.asList(mPantryEditText.getText().toString().split(","));
+        final int generation = ++mQueryGeneration;
+        mExecutors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                List<PantryMatch> matches = matcher.match(matcher.pantryOf(items), MAX_MATCHES);
+                final PantryMatch[] results = matches.toArray(new PantryMatch[0]);
+                Timber.d("Matched pantry of %s items in %.2f ms", items.size(), (System.nanoTime() - start) / 1e6);
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mQueryGeneration) mAdapter.setData(results);
+                    }
+                });
+            }
+        });
+    }
+
+    private SharedPreferences getPreferences(){
+        return getSharedPreferences(PANTRY_PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -7,11 +7,14 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.os.TraceCompat;
 import androidx.fragment.app.FragmentManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
 import com.example.android.baking.fragments.SelectRecipeFragment;
+import com.example.android.baking.utils.StartupTrace;
 
 import butterknife.BindView;
 import timber.log.Timber;
@@ -28,12 +31,13 @@ public class RecipeActivity extends AppCompatActivity implements
 
     private SelectRecipeFragment mSelectRecipeFragment;
 
-    public static final String RECIPE_KEY = "recipe";
+    public static final String RECIPE_ID_KEY = "recipe_id";
     public static final String SELECT_RECIPE_FRAGMENT_KEY = "select_recipe_fragment";
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        TraceCompat.beginSection(StartupTrace.ACTIVITY_CREATE);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_recipe);
 
@@ -44,12 +48,6 @@ public class RecipeActivity extends AppCompatActivity implements
             Timber.d("restoring select recipe fragment %s", mSelectRecipeFragment.getId());
         }
 
-        // Set up Timber
-        if (BuildConfig.DEBUG){
-            if (savedInstanceState==null) // prevents setting up multiple debug trees which would repeat logs
-                Timber.plant(new Timber.DebugTree());
-        }
-
         // Set screen orientation for tablet
         if(getResources().getBoolean(R.bool.is_600_wide)){
             setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
@@ -61,14 +59,17 @@ public class RecipeActivity extends AppCompatActivity implements
         fragmentManager.beginTransaction()
                 .replace(R.id.main_activity_fragment_container, mSelectRecipeFragment)
                 .commit();
+        TraceCompat.endSection();
 
     }
 
     /* On selecting a recipe start the steps activity */
     @Override
     public void onRecipeSelected(Recipe recipe) {
+        // The list pages through the catalog, so the repository may not hold this recipe yet
+        RecipeRepository.getInstance(this).rememberRecipe(recipe);
         Intent intent = new Intent(this, StepsActivity.class);
-        intent.putExtra(RECIPE_KEY, recipe); // Send the recipe in bundle
+        intent.putExtra(RECIPE_ID_KEY, recipe.getId()); // Send only the id, the recipe stays in the repository
         startActivity(intent);
     }
 
@@ -0,0 +1,150 @@
+package com.example.android.baking;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.adapters.IngredientAdapter;
+import com.example.android.baking.adapters.ShoppingPlanAdapter;
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
+import com.example.android.baking.shopping.ShoppingList;
+import com.example.android.baking.utils.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+import timber.log.Timber;
+
+/* One merged list of everything to buy for the chosen recipes at the chosen servings */
+public class ShoppingListActivity extends AppCompatActivity implements
+        ShoppingPlanAdapter.ShoppingPlanListener, RecipeRepository.RecipesCallback {
+
+    private static final String SHOPPING_PREFS = "shopping_list";
+    private static final String KEY_SERVINGS_PREFIX = "servings_";
+
+    @BindView(R.id.shopping_plan_recyclerview) RecyclerView mPlanRecyclerView;
+    @BindView(R.id.shopping_list_recyclerview) RecyclerView mListRecyclerView;
+    @BindView(R.id.shopping_empty_tv) TextView mEmptyTv;
+
+    private ShoppingPlanAdapter mPlanAdapter;
+    private IngredientAdapter mIngredientAdapter;
+    private final AppExecutors mExecutors = AppExecutors.getInstance();
+
+    // Recipe id to servings, kept in preferences so the plan survives between visits
+    private final SparseIntArray mServings = new SparseIntArray();
+    private Recipe[] mRecipes;
+    private int mBuildGeneration;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_shopping_list);
+        ButterKnife.bind(this);
+
+        for (Map.Entry<String, ?> entry : getPreferences().getAll().entrySet()){
+            if (!entry.getKey().startsWith(KEY_SERVINGS_PREFIX) || !(entry.getValue() instanceof Integer)) continue;
+            try {
+                int recipeId = Integer.parseInt(entry.getKey().substring(KEY_SERVINGS_PREFIX.length()));
+                mServings.put(recipeId, (Integer) entry.getValue());
+            } catch (NumberFormatException e){
+                Timber.e(e, "Ignoring shopping list entry %s", entry.getKey());
+            }
+        }
+
+        mPlanRecyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mPlanAdapter = new ShoppingPlanAdapter(mServings, this, this);
+        mPlanRecyclerView.setAdapter(mPlanAdapter);
+
+        mListRecyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mIngredientAdapter = new IngredientAdapter(this);
+        mListRecyclerView.setAdapter(mIngredientAdapter);
+
+        RecipeRepository.getInstance(this).loadRecipes(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RecipeRepository.getInstance(this).removeCallback(this);
+    }
+
+    @Override
+    public void onRecipesLoaded(Recipe[] recipes, ChangeSet changes) {
+        boolean replan = !changes.follows(mRecipes) || touchesPlan(recipes, changes);
+        mRecipes = recipes;
+        mPlanAdapter.setData(recipes);
+        if (replan) buildList();
+    }
+
+    /* True when a recipe on the plan changed, changes to other recipes leave the list as it is */
+    private boolean touchesPlan(Recipe[] recipes, ChangeSet changes){
+        for (int position : changes.getAdded()) if (mServings.get(recipes[position].getId()) != 0) return true;
+        for (int position : changes.getUpdated()) if (mServings.get(recipes[position].getId()) != 0) return true;
+        for (int id : changes.getRemoved()) if (mServings.get(id) != 0) return true;
+        return false;
+    }
+
+    @Override
+    public void onRecipesUnavailable(Throwable t) {
+        Timber.d("No recipes to shop for: %s", t.getMessage());
+    }
+
+    @Override
+    public void onServingsChanged(Recipe recipe, int servings) {
+        SharedPreferences.Editor editor = getPreferences().edit();
+        if (servings == 0) editor.remove(KEY_SERVINGS_PREFIX + recipe.getId());
+        else editor.putInt(KEY_SERVINGS_PREFIX + recipe.getId(), servings);
+        editor.apply();
+        buildList();
+    }
+
+    /* Merges the plan off the main thread, only the latest plan is shown */
+    private void buildList(){
+        if (mRecipes == null) return;
+        final List<Recipe> recipes = new ArrayList<>();
+        final int[] servings = new int[mServings.size()];
+        for (Recipe recipe : mRecipes){
+            int wanted = mServings.get(recipe.getId());
+            if (wanted == 0 || recipes.size() == servings.length) continue;
+            servings[recipes.size()] = wanted;
+            recipes.add(recipe);
+        }
+        final int generation = ++mBuildGeneration;
+        mExecutors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                ShoppingList list = new ShoppingList();
+                for (int i = 0; i < recipes.size(); i++) list.add(recipes.get(i), servings[i]);
+                final Ingredient[] ingredients = list.build();
+                Timber.d("Merged %s recipes into %s lines in %.2f ms",
+                        recipes.size(), ingredients.length, (System.nanoTime() - start) / 1e6);
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mBuildGeneration) return;
+                        mIngredientAdapter.setData(ingredients);
+                        mEmptyTv.setVisibility(ingredients.length == 0 ? View.VISIBLE : View.INVISIBLE);
+                    }
+                });
+            }
+        });
+    }
+
+    private SharedPreferences getPreferences(){
+        return getSharedPreferences(SHOPPING_PREFS, Context.MODE_PRIVATE);
+    }
+}
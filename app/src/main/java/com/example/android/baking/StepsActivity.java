@@ -1,7 +1,5 @@
 package com.example.android.baking;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.os.Bundle;
 import android.view.Menu;
@@ -14,12 +12,13 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 
-import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.FavoritesStore;
 import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
 import com.example.android.baking.fragments.SelectStepFragment;
 import com.example.android.baking.fragments.ViewStepFragment;
-import com.example.android.baking.services.UpdateWidgetService;
-import com.google.gson.Gson;
+import com.example.android.baking.player.PlayerHolder;
+import com.example.android.baking.widget.WidgetUpdateScheduler;
 
 import timber.log.Timber;
 
@@ -33,6 +32,15 @@ public class StepsActivity extends AppCompatActivity implements
     private ViewStepFragment mViewStepFragment;
 
     private Recipe mRecipe;
+    private FavoritesStore mFavorites;
+
+    // Refreshes the save toggle once favorites are loaded and whenever they change
+    private final FavoritesStore.Listener mFavoritesListener = new FavoritesStore.Listener() {
+        @Override
+        public void onFavoritesChanged() {
+            invalidateOptionsMenu();
+        }
+    };
 
     public static final String SELECT_STEP_FRAGMENT_KEY = "step_fragment";
     public static final String VIEW_STEP_FRAGMENT_KEY = "view_step_fragment";
@@ -46,7 +54,6 @@ public class StepsActivity extends AppCompatActivity implements
         // Restore the recipe and the fragments
         Fragment restoredFrag = null;
         if (savedInstanceState!=null){
-            mRecipe = savedInstanceState.getParcelable(RecipeActivity.RECIPE_KEY);
             mSelectStepFragment = (SelectStepFragment) getSupportFragmentManager()
                     .getFragment(savedInstanceState, SELECT_STEP_FRAGMENT_KEY);
             mViewStepFragment = (ViewStepFragment) getSupportFragmentManager()
@@ -74,17 +81,24 @@ public class StepsActivity extends AppCompatActivity implements
         if (mSelectStepFragment == null) mSelectStepFragment = new SelectStepFragment();
         if (mViewStepFragment == null) mViewStepFragment = new ViewStepFragment();
 
-        // Get the recipe from the intent
-        if (getIntent().hasExtra(RecipeActivity.RECIPE_KEY)){
-            mRecipe = getIntent().getParcelableExtra(RecipeActivity.RECIPE_KEY);
-            mSelectStepFragment.setRecipe(mRecipe);
-            mViewStepFragment.setSteps(mRecipe.getSteps());
-            mViewStepFragment.setStepPosition(0); // initialize step
+        // Get the recipe for the id in the intent
+        int recipeId = getIntent().getIntExtra(RecipeActivity.RECIPE_ID_KEY, -1);
+        mRecipe = RecipeRepository.getInstance(this).getRecipe(recipeId);
+        if (mRecipe == null){
+            Timber.e("No recipe with id %s", recipeId);
+            finish();
+            return;
         }
+        mSelectStepFragment.setRecipe(mRecipe);
+        mViewStepFragment.setRecipe(mRecipe);
+        mViewStepFragment.setStepPosition(0); // initialize step
 
         // Set the title of the recipe
         setTitle(mRecipe.getName());
 
+        mFavorites = FavoritesStore.getInstance(this);
+        mFavorites.addListener(mFavoritesListener);
+
         // Handle set up for one pane or two pane layout
         Timber.d("Two pane is: %s", twoPane);
         if (twoPane){
@@ -133,8 +147,7 @@ public class StepsActivity extends AppCompatActivity implements
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        // Save the selected recipe
-        outState.putParcelable(RecipeActivity.RECIPE_KEY, mRecipe);
+        // The recipe itself is found again through the id in the intent
         // Save the state of fragments
         if (twoPane) {
             getSupportFragmentManager()
@@ -153,6 +166,14 @@ public class StepsActivity extends AppCompatActivity implements
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mFavorites != null) mFavorites.removeListener(mFavoritesListener);
+        // The shared player outlives rotation, only release it once the steps are gone for good
+        if (isFinishing()) PlayerHolder.release();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
@@ -160,30 +181,33 @@ public class StepsActivity extends AppCompatActivity implements
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        MenuItem saveToggle = menu.findItem(R.id.ingredients_save_toggle);
+        // Until the favorites index is read there is no telling which way the toggle points
+        saveToggle.setEnabled(mFavorites.isLoaded());
+        saveToggle.setChecked(mFavorites.isFavorite(mRecipe.getId()));
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()){
             case R.id.ingredients_save_toggle:
-                saveRecipe();
+                toggleFavorite();
                 return true;
             default:
                 return super.onOptionsItemSelected(item);
         }
     }
 
-    private void saveRecipe(){
-        // Save the ingredients in a shared pref
-        SharedPreferences pref = this.getBaseContext().getSharedPreferences("pref", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = pref.edit();
-
-        // Save the recipe as a JSON object to shared preferences
-        Gson gson = new Gson();
-        String recipeJson = gson.toJson(mRecipe);
-        editor.putString(RecipeActivity.RECIPE_KEY, recipeJson);
-        editor.apply();
+    /* Only changes the favorites in memory here, they are written on the disk thread */
+    private void toggleFavorite(){
+        if (mFavorites.isFavorite(mRecipe.getId())) mFavorites.remove(mRecipe.getId());
+        else mFavorites.add(mRecipe);
 
-        // Update the widgets
-        UpdateWidgetService.startActionUpdateIngredientWidgets(this);
+        // Quick toggles are merged into one widget update
+        WidgetUpdateScheduler.getInstance(this).requestAll();
     }
 
 
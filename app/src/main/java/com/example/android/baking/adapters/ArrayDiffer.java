@@ -0,0 +1,104 @@
+package com.example.android.baking.adapters;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.utils.AppExecutors;
+
+import timber.log.Timber;
+
+/* Holds an adapter's backing array and swaps in new arrays by diffing them off the main thread.
+ * Only the rows that changed are dispatched, so a refresh that changed nothing does no ui work. */
+public class ArrayDiffer<T> {
+
+    public interface ItemCallback<T> {
+        /* Same stable identity, for example the same id */
+        boolean areItemsTheSame(T oldItem, T newItem);
+        /* Same content, the row does not need to be bound again */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    private final RecyclerView.Adapter<?> mAdapter;
+    private final ItemCallback<T> mItemCallback;
+    private final AppExecutors mExecutors;
+
+    @Nullable private T[] mItems;
+    // Lets a newer submission win over a diff that is still being computed
+    private int mGeneration;
+
+    public ArrayDiffer(RecyclerView.Adapter<?> adapter, ItemCallback<T> itemCallback){
+        mAdapter = adapter;
+        mItemCallback = itemCallback;
+        mExecutors = AppExecutors.getInstance();
+    }
+
+    @Nullable
+    public T[] getItems(){
+        return mItems;
+    }
+
+    public int size(){
+        return mItems == null ? 0 : mItems.length;
+    }
+
+    /* Replaces the items without a diff, for when the adapter is about to rebind everything anyway.
+     * Must be called from the main thread. */
+    public void reset(@Nullable T[] items){
+        mGeneration++;
+        mItems = items;
+    }
+
+    /* Must be called from the main thread */
+    public void submit(@Nullable final T[] newItems){
+        final int generation = ++mGeneration;
+        final T[] oldItems = mItems;
+        if (oldItems == newItems) return;
+
+        // Nothing to compare against, insert or remove everything at once
+        if (oldItems == null || newItems == null){
+            mItems = newItems;
+            if (oldItems != null) mAdapter.notifyItemRangeRemoved(0, oldItems.length);
+            if (newItems != null) mAdapter.notifyItemRangeInserted(0, newItems.length);
+            return;
+        }
+
+        mExecutors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldItems.length;
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newItems.length;
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                        return mItemCallback.areItemsTheSame(oldItems[oldItemPosition], newItems[newItemPosition]);
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                        return mItemCallback.areContentsTheSame(oldItems[oldItemPosition], newItems[newItemPosition]);
+                    }
+                });
+
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) return;
+                        mItems = newItems;
+                        // An empty diff dispatches nothing, so the adapter is left alone
+                        result.dispatchUpdatesTo(mAdapter);
+                        Timber.d("Dispatched diff of %s to %s rows", oldItems.length, newItems.length);
+                    }
+                });
+            }
+        });
+    }
+}
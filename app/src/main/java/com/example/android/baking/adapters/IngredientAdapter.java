@@ -7,26 +7,40 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.util.ObjectsCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.baking.R;
 import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.utils.QuantityFormatter;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
 public class IngredientAdapter extends RecyclerView.Adapter<IngredientAdapter.IngredientAdapterViewHolder> {
 
-    private Ingredient[] mIngredients;
+    private final ArrayDiffer<Ingredient> mIngredients;
     private Context mContext;
 
     public IngredientAdapter(Context context){
         mContext = context;
+        // Ingredients have no id, the ingredient name is the closest thing to one
+        mIngredients = new ArrayDiffer<>(this, new ArrayDiffer.ItemCallback<Ingredient>() {
+            @Override
+            public boolean areItemsTheSame(Ingredient oldItem, Ingredient newItem) {
+                return ObjectsCompat.equals(oldItem.getIngredient(), newItem.getIngredient());
+            }
+
+            @Override
+            public boolean areContentsTheSame(Ingredient oldItem, Ingredient newItem) {
+                return oldItem.equals(newItem);
+            }
+        });
     }
 
+    /* Only the ingredients that changed are rebound */
     public void setData(Ingredient[] ingredients){
-        mIngredients = ingredients;
-        notifyDataSetChanged();
+        mIngredients.submit(ingredients);
     }
 
     @NonNull
@@ -40,16 +54,15 @@ public class IngredientAdapter extends RecyclerView.Adapter<IngredientAdapter.In
     @Override
     public void onBindViewHolder(@NonNull IngredientAdapter.IngredientAdapterViewHolder holder, int position) {
         // Update views
-        Ingredient ingredient = mIngredients[position];
-        holder.mQuantityTv.setText(String.valueOf(ingredient.getQuantity()));
+        Ingredient ingredient = mIngredients.getItems()[position];
+        holder.mQuantityTv.setText(QuantityFormatter.format(ingredient.getQuantity()));
         holder.mMeasureTv.setText(ingredient.getMeasure());
         holder.mIngredientTv.setText(ingredient.getIngredient());
     }
 
     @Override
     public int getItemCount() {
-        if (mIngredients == null) return 0;
-        else return mIngredients.length;
+        return mIngredients.size();
     }
 
     public class IngredientAdapterViewHolder extends RecyclerView.ViewHolder{
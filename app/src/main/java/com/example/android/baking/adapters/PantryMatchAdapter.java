@@ -0,0 +1,96 @@
+package com.example.android.baking.adapters;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.R;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.pantry.PantryMatch;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+public class PantryMatchAdapter extends RecyclerView.Adapter<PantryMatchAdapter.PantryMatchViewHolder> {
+
+    private final ArrayDiffer<PantryMatch> mMatches;
+    private final RecipeAdapter.RecipeAdapterOnClickHandler mClickHandler;
+    private Context mContext;
+
+    public PantryMatchAdapter(RecipeAdapter.RecipeAdapterOnClickHandler handler, Context context){
+        mClickHandler = handler;
+        mContext = context;
+        mMatches = new ArrayDiffer<>(this, new ArrayDiffer.ItemCallback<PantryMatch>() {
+            @Override
+            public boolean areItemsTheSame(PantryMatch oldItem, PantryMatch newItem) {
+                return oldItem.getRecipe().getId() == newItem.getRecipe().getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(PantryMatch oldItem, PantryMatch newItem) {
+                return oldItem.getCovered() == newItem.getCovered()
+                        && oldItem.getMissing().equals(newItem.getMissing())
+                        && oldItem.getRecipe().getName().equals(newItem.getRecipe().getName());
+            }
+        });
+        setHasStableIds(true);
+    }
+
+    public class PantryMatchViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener{
+        @BindView(R.id.pantry_recipe_name_tv) TextView mName;
+        @BindView(R.id.pantry_coverage_tv) TextView mCoverage;
+        @BindView(R.id.pantry_missing_tv) TextView mMissing;
+
+        public PantryMatchViewHolder(@NonNull View itemView) {
+            super(itemView);
+            ButterKnife.bind(this, itemView);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            Recipe clickedRecipe = mMatches.getItems()[position].getRecipe();
+            mClickHandler.onClick(clickedRecipe);
+        }
+    }
+
+    @NonNull
+    @Override
+    public PantryMatchViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.pantry_match_item, parent, false);
+        return new PantryMatchViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PantryMatchViewHolder holder, int position) {
+        PantryMatch match = mMatches.getItems()[position];
+        holder.mName.setText(match.getRecipe().getName());
+        holder.mCoverage.setText(mContext.getString(R.string.pantry_coverage, match.getCovered(), match.getTotal()));
+        holder.mMissing.setText(match.getMissing().isEmpty()
+                ? mContext.getString(R.string.pantry_nothing_missing)
+                : mContext.getString(R.string.pantry_missing, TextUtils.join(", ", match.getMissing())));
+    }
+
+    @Override
+    public int getItemCount() {
+        return mMatches.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mMatches.getItems()[position].getRecipe().getId();
+    }
+
+    /* Only the matches that changed are rebound */
+    public void setData(PantryMatch[] matches){
+        mMatches.submit(matches);
+    }
+}
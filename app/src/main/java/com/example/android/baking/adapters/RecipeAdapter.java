@@ -4,13 +4,18 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.baking.R;
 import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipePager;
+import com.example.android.baking.utils.ImageUtils;
+import com.squareup.picasso.Picasso;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -18,9 +23,15 @@ import timber.log.Timber;
 
 public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeAdapterViewHolder> {
 
-    private Recipe[] mRecipeData;
+    /* Tag on every image request so they can be paused together while the list flings */
+    public static final String IMAGE_TAG = "recipe_images";
+
+    private final ArrayDiffer<Recipe> mRecipeData;
+    // While browsing, rows come from the pager instead of the array
+    @Nullable private RecipePager mPager;
     private final RecipeAdapterOnClickHandler mClickHandler;
     private Context mContext;
+    private final Picasso mPicasso;
 
 
     public interface RecipeAdapterOnClickHandler{
@@ -30,10 +41,24 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeAdap
     public RecipeAdapter(RecipeAdapterOnClickHandler handler, Context context){
         mClickHandler = handler;
         mContext = context;
+        mPicasso = ImageUtils.getPicasso(context);
+        mRecipeData = new ArrayDiffer<>(this, new ArrayDiffer.ItemCallback<Recipe>() {
+            @Override
+            public boolean areItemsTheSame(Recipe oldItem, Recipe newItem) {
+                return oldItem.getId() == newItem.getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(Recipe oldItem, Recipe newItem) {
+                return oldItem.equals(newItem);
+            }
+        });
+        setHasStableIds(true);
     }
 
     public class RecipeAdapterViewHolder extends RecyclerView.ViewHolder implements
     View.OnClickListener{
+        @BindView(R.id.recipe_image_iv) ImageView mImage;
         @BindView(R.id.recipe_name_tv) TextView mName;
         @BindView(R.id.servings_tv) TextView mServings;
         public RecipeAdapterViewHolder(@NonNull View itemView) {
@@ -45,7 +70,10 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeAdap
         @Override
         public void onClick(View view) {
             int position = getAdapterPosition();
-            Recipe clickedRecipe = mRecipeData[position];
+            if (position == RecyclerView.NO_POSITION) return;
+            Recipe clickedRecipe = getRecipe(position);
+            // Rows of a page that is still loading have nothing to open yet
+            if (clickedRecipe == null) return;
             mClickHandler.onClick(clickedRecipe);
             Timber.d("clicking position " + position);
         }
@@ -66,7 +94,11 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeAdap
     @Override
     public void onBindViewHolder(@NonNull RecipeAdapterViewHolder holder, int position) {
         // Get relevant info
-        Recipe currentRecipe = mRecipeData[position];
+        Recipe currentRecipe = getRecipe(position);
+        if (currentRecipe == null){
+            bindPlaceholder(holder);
+            return;
+        }
         String name = currentRecipe.getName();
         int servings = currentRecipe.getServings();
 
@@ -76,17 +108,82 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.RecipeAdap
         // Set the text on views
         holder.mName.setText(name);
         holder.mServings.setText(serveString);
+        holder.mServings.setVisibility(View.VISIBLE);
+
+        // Decoded at the size of the view, most recipes have no image so the view collapses
+        String image = currentRecipe.getImage();
+        if (image == null || image.isEmpty()){
+            mPicasso.cancelRequest(holder.mImage);
+            holder.mImage.setImageDrawable(null);
+            holder.mImage.setVisibility(View.GONE);
+        } else {
+            holder.mImage.setVisibility(View.VISIBLE);
+            mPicasso.load(image)
+                    .fit()
+                    .centerCrop()
+                    .tag(IMAGE_TAG)
+                    .into(holder.mImage);
+        }
+    }
+
+    /* Keeps the row's height so the list does not jump when the page arrives */
+    private void bindPlaceholder(RecipeAdapterViewHolder holder){
+        mPicasso.cancelRequest(holder.mImage);
+        holder.mImage.setImageDrawable(null);
+        holder.mImage.setVisibility(View.GONE);
+        holder.mName.setText("");
+        holder.mServings.setVisibility(View.INVISIBLE);
+    }
+
+    /* Rows that scrolled off no longer need their image */
+    @Override
+    public void onViewRecycled(@NonNull RecipeAdapterViewHolder holder) {
+        mPicasso.cancelRequest(holder.mImage);
+        super.onViewRecycled(holder);
     }
 
     @Override
     public int getItemCount() {
-        if (mRecipeData==null) return 0;
-        return mRecipeData.length;
+        if (mPager != null) return mPager.getCount();
+        return mRecipeData.size();
     }
 
-    public void setmRecipeData(Recipe[] recipes){
-        mRecipeData = recipes;
+    /* Positions never move while paging, so they are stable ids there */
+    @Override
+    public long getItemId(int position) {
+        if (mPager != null) return position;
+        return mRecipeData.getItems()[position].getId();
+    }
+
+    @Nullable
+    private Recipe getRecipe(int position){
+        if (mPager != null) return mPager.get(position);
+        return mRecipeData.getItems()[position];
+    }
+
+    /* Browses the whole catalog through the pager, rows of pages not yet loaded are placeholders */
+    public void setPager(RecipePager pager){
+        if (mPager == pager) return;
+        mPager = pager;
+        mRecipeData.reset(null);
         notifyDataSetChanged();
+    }
+
+    /* True while rows come from the pager, which then reports its own changes to the adapter */
+    public boolean isPaging(){
+        return mPager != null;
+    }
+
+    /* Only the recipes that changed are rebound */
+    public void setmRecipeData(Recipe[] recipes){
+        if (mPager != null){
+            // Switching away from the pager, nothing to diff against
+            mPager = null;
+            mRecipeData.reset(recipes);
+            notifyDataSetChanged();
+            return;
+        }
+        mRecipeData.submit(recipes);
         Timber.d("Setting recipe data");
     }
 }
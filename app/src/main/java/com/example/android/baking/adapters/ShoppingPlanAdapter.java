@@ -0,0 +1,101 @@
+package com.example.android.baking.adapters;
+
+import android.content.Context;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.R;
+import com.example.android.baking.data.Recipe;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/* Recipes with the number of servings to shop for, each tap adds or removes one batch */
+public class ShoppingPlanAdapter extends RecyclerView.Adapter<ShoppingPlanAdapter.ShoppingPlanViewHolder> {
+
+    private Recipe[] mRecipes;
+    // Recipe id to servings wanted, absent means the recipe is not on the list
+    private final SparseIntArray mServings;
+    private final ShoppingPlanListener mListener;
+    private Context mContext;
+
+    public interface ShoppingPlanListener {
+        void onServingsChanged(Recipe recipe, int servings);
+    }
+
+    public ShoppingPlanAdapter(SparseIntArray servings, ShoppingPlanListener listener, Context context){
+        mServings = servings;
+        mListener = listener;
+        mContext = context;
+        setHasStableIds(true);
+    }
+
+    public class ShoppingPlanViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener{
+        @BindView(R.id.shopping_recipe_name_tv) TextView mName;
+        @BindView(R.id.shopping_servings_tv) TextView mServingsTv;
+        @BindView(R.id.shopping_fewer_button) Button mFewerButton;
+        @BindView(R.id.shopping_more_button) Button mMoreButton;
+
+        public ShoppingPlanViewHolder(@NonNull View itemView) {
+            super(itemView);
+            ButterKnife.bind(this, itemView);
+            mFewerButton.setOnClickListener(this);
+            mMoreButton.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            Recipe recipe = mRecipes[position];
+            int batch = Math.max(recipe.getServings(), 1);
+            int current = mServings.get(recipe.getId());
+            int servings = view == mMoreButton ? current + batch : Math.max(current - batch, 0);
+            if (servings == current) return;
+
+            if (servings == 0) mServings.delete(recipe.getId());
+            else mServings.put(recipe.getId(), servings);
+            notifyItemChanged(position);
+            mListener.onServingsChanged(recipe, servings);
+        }
+    }
+
+    @NonNull
+    @Override
+    public ShoppingPlanViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.shopping_plan_item, parent, false);
+        return new ShoppingPlanViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ShoppingPlanViewHolder holder, int position) {
+        Recipe recipe = mRecipes[position];
+        int servings = mServings.get(recipe.getId());
+        holder.mName.setText(recipe.getName());
+        holder.mServingsTv.setText(mContext.getString(R.string.shopping_servings, servings));
+        holder.mFewerButton.setEnabled(servings > 0);
+    }
+
+    @Override
+    public int getItemCount() {
+        if (mRecipes == null) return 0;
+        return mRecipes.length;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mRecipes[position].getId();
+    }
+
+    public void setData(Recipe[] recipes){
+        mRecipes = recipes;
+        notifyDataSetChanged();
+    }
+}
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
@@ -12,6 +13,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.baking.R;
 import com.example.android.baking.data.Step;
+import com.example.android.baking.utils.ImageUtils;
+import com.example.android.baking.utils.PrecomputedTextCache;
+import com.squareup.picasso.Picasso;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -19,17 +23,34 @@ import timber.log.Timber;
 
 public class StepAdapter extends RecyclerView.Adapter<StepAdapter.StepAdapterViewHolder> {
 
-    private Step[] mStepData;
+    private final ArrayDiffer<Step> mStepData;
     private final StepOnClickHandler mClickHandler;
+    // Created from the first row's text view, short descriptions are measured off the ui thread
+    private PrecomputedTextCache mShortDescriptionCache;
 
     public interface StepOnClickHandler{
         void onClick(int position);
     }
 
-    public StepAdapter(StepOnClickHandler handler){ mClickHandler = handler; }
+    public StepAdapter(StepOnClickHandler handler){
+        mClickHandler = handler;
+        mStepData = new ArrayDiffer<>(this, new ArrayDiffer.ItemCallback<Step>() {
+            @Override
+            public boolean areItemsTheSame(Step oldItem, Step newItem) {
+                return oldItem.getId() == newItem.getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(Step oldItem, Step newItem) {
+                return oldItem.equals(newItem);
+            }
+        });
+        setHasStableIds(true);
+    }
 
     public class StepAdapterViewHolder extends RecyclerView.ViewHolder implements
             View.OnClickListener{
+        @BindView(R.id.step_thumbnail) ImageView mThumbnail;
         @BindView(R.id.step_id) TextView mId;
         @BindView(R.id.step_short_description) TextView mShortDescription;
 
@@ -42,6 +63,7 @@ public class StepAdapter extends RecyclerView.Adapter<StepAdapter.StepAdapterVie
         @Override
         public void onClick(View view) {
             int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
             //Step clickedStep = mStepData[position];
             mClickHandler.onClick(position);
             Timber.d("clicking position " + position);
@@ -57,29 +79,65 @@ public class StepAdapter extends RecyclerView.Adapter<StepAdapter.StepAdapterVie
 
         View view = inflater.inflate(layoutId, parent, false);
 
-        return new StepAdapterViewHolder(view);
+        StepAdapterViewHolder holder = new StepAdapterViewHolder(view);
+        if (mShortDescriptionCache == null){
+            mShortDescriptionCache = new PrecomputedTextCache(holder.mShortDescription);
+            prefetchShortDescriptions(mStepData.getItems());
+        }
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull StepAdapterViewHolder holder, int position) {
-        Step currentStep = mStepData[position];
+        Step currentStep = mStepData.getItems()[position];
 
         int id = currentStep.getId();
         String shortDescription = currentStep.getShortDescription();
 
         holder.mId.setText(String.valueOf(id));
-        holder.mShortDescription.setText(shortDescription);
+        mShortDescriptionCache.setText(holder.mShortDescription, shortDescription);
+
+        // Frames are pulled from the step video in the background and cached on disk
+        Picasso picasso = ImageUtils.getPicasso(holder.itemView.getContext());
+        String poster = ImageUtils.getPosterUrl(currentStep);
+        if (poster == null){
+            picasso.cancelRequest(holder.mThumbnail);
+            holder.mThumbnail.setImageDrawable(null);
+            holder.mThumbnail.setVisibility(View.GONE);
+        } else {
+            holder.mThumbnail.setVisibility(View.VISIBLE);
+            picasso.load(poster)
+                    .fit()
+                    .centerCrop()
+                    .into(holder.mThumbnail);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull StepAdapterViewHolder holder) {
+        ImageUtils.getPicasso(holder.itemView.getContext()).cancelRequest(holder.mThumbnail);
+        super.onViewRecycled(holder);
     }
 
     @Override
     public int getItemCount() {
-        if (mStepData==null)return 0;
-        return mStepData.length;
+        return mStepData.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mStepData.getItems()[position].getId();
+    }
+
+    private void prefetchShortDescriptions(Step[] steps){
+        if (mShortDescriptionCache == null || steps == null) return;
+        for (Step step : steps) mShortDescriptionCache.prefetch(step.getShortDescription());
     }
 
+    /* Only the steps that changed are rebound */
     public void setmRecipeData(Step[] steps){
-        mStepData = steps;
-        notifyDataSetChanged();
+        prefetchShortDescriptions(steps);
+        mStepData.submit(steps);
         Timber.d("Setting step data");
     }
 }
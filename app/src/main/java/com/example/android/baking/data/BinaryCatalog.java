@@ -0,0 +1,309 @@
+package com.example.android.baking.data;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/* Recipes saved in a compact binary file read through a memory mapped buffer. A table at the
+ * front holds the id, content hash and record offset of every recipe, so opening the file reads
+ * nothing but the header and any recipe can be decoded on its own. Step descriptions, the bulk
+ * of a recipe, are only decoded when a step's description is asked for.
+ *
+ * Layout, big endian: magic, version, count, then count entries of id, hash and offset, then the
+ * records. A record is name, servings, image, the ingredients as quantity, measure and name, and
+ * the steps as id, short description, description, video url and thumbnail url. Strings are a
+ * byte length, -1 for null, followed by utf-8 bytes. */
+public class BinaryCatalog {
+
+    private static final int MAGIC = 0x52434154;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Only read with absolute gets or through duplicates, so it can be shared between threads
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+
+    private BinaryCatalog(ByteBuffer buffer, int count){
+        mBuffer = buffer;
+        mCount = count;
+    }
+
+    /* Maps a saved catalog, null when there is none. Throws when the file is not a catalog. */
+    @Nullable
+    public static BinaryCatalog open(File file) throws IOException {
+        if (!file.exists()) return null;
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()){
+            // The mapping stays valid after the channel is closed, and after the file is replaced
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return wrap(buffer);
+    }
+
+    /* Reads a catalog already in memory, for example one just encoded */
+    public static BinaryCatalog wrap(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a recipe catalog");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported recipe catalog version " + buffer.getInt(4));
+        int count = buffer.getInt(8);
+        if (count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES > buffer.limit())
+            throw new IOException("Truncated recipe catalog");
+        return new BinaryCatalog(buffer, count);
+    }
+
+    public int size(){
+        return mCount;
+    }
+
+    public int getId(int position){
+        return mBuffer.getInt(entry(position));
+    }
+
+    public long getContentHash(int position){
+        return mBuffer.getLong(entry(position) + 4);
+    }
+
+    /* Position of the recipe with this id, -1 when it is not in the catalog. Only the table is read. */
+    public int indexOf(int id){
+        for (int position = 0; position < mCount; position++) if (getId(position) == id) return position;
+        return -1;
+    }
+
+    /* Decodes just the name, enough for a row of the recipe list */
+    @Nullable
+    public String getName(int position){
+        return readString(offset(position));
+    }
+
+    CatalogHashes getHashes(){
+        int[] ids = new int[mCount];
+        long[] hashes = new long[mCount];
+        for (int position = 0; position < mCount; position++){
+            ids[position] = getId(position);
+            hashes[position] = getContentHash(position);
+        }
+        return new CatalogHashes(ids, hashes);
+    }
+
+    /* Decodes one recipe, its step descriptions stay in the file until they are asked for */
+    public Recipe readRecipe(int position){
+        ByteBuffer in = mBuffer.duplicate();
+        in.position(offset(position));
+
+        Recipe recipe = new Recipe();
+        recipe.setId(getId(position));
+        recipe.setContentHash(getContentHash(position));
+        recipe.setName(readString(in));
+        recipe.setServings(in.getInt());
+        recipe.setImage(readString(in));
+
+        Ingredient[] ingredients = new Ingredient[in.getInt()];
+        for (int i = 0; i < ingredients.length; i++){
+            Ingredient ingredient = new Ingredient();
+            ingredient.setQuantity(in.getDouble());
+            ingredient.setMeasure(readString(in));
+            ingredient.setIngredient(readString(in));
+            ingredients[i] = ingredient;
+        }
+        recipe.setIngredients(ingredients);
+
+        Step[] steps = new Step[in.getInt()];
+        for (int i = 0; i < steps.length; i++){
+            Step step = new Step();
+            step.setId(in.getInt());
+            step.setShortDescription(readString(in));
+            int descriptionOffset = in.position();
+            skipString(in);
+            step.setLazyDescription(this, descriptionOffset);
+            step.setVideoURL(readString(in));
+            step.setThumbnailURL(readString(in));
+            steps[i] = step;
+        }
+        recipe.setSteps(steps);
+        return recipe;
+    }
+
+    public Recipe[] readAll(){
+        Recipe[] recipes = new Recipe[mCount];
+        for (int position = 0; position < mCount; position++) recipes[position] = readRecipe(position);
+        return recipes;
+    }
+
+    /* Decodes the string at an absolute offset */
+    @Nullable
+    String readString(int offset){
+        ByteBuffer in = mBuffer.duplicate();
+        in.position(offset);
+        return readString(in);
+    }
+
+    private int entry(int position){
+        if (position < 0 || position >= mCount) throw new IndexOutOfBoundsException("Recipe " + position + " of " + mCount);
+        return HEADER_BYTES + position * ENTRY_BYTES;
+    }
+
+    private int offset(int position){
+        return mBuffer.getInt(entry(position) + 12);
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer in){
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void skipString(ByteBuffer in){
+        int length = in.getInt();
+        if (length > 0) in.position(in.position() + length);
+    }
+
+    /* Encodes recipes into records and sets each recipe's content hash from its record bytes */
+    public static Encoded encode(Recipe[] recipes){
+        byte[][] records = new byte[recipes.length][];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (int i = 0; i < recipes.length; i++){
+                bytes.reset();
+                writeRecipe(out, recipes[i]);
+                out.flush();
+                records[i] = bytes.toByteArray();
+                recipes[i].setContentHash(hash(records[i]));
+            }
+        } catch (IOException e){
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return new Encoded(recipes, records);
+    }
+
+    private static void writeRecipe(DataOutputStream out, Recipe recipe) throws IOException {
+        writeString(out, recipe.getName());
+        out.writeInt(recipe.getServings());
+        writeString(out, recipe.getImage());
+
+        // A feed with null entries in its arrays, like "ingredients":[null], has them left out
+        Ingredient[] ingredients = recipe.getIngredients();
+        out.writeInt(countNonNull(ingredients));
+        if (ingredients != null)
+            for (Ingredient ingredient : ingredients){
+                if (ingredient == null) continue;
+                out.writeDouble(ingredient.getQuantity());
+                writeString(out, ingredient.getMeasure());
+                writeString(out, ingredient.getIngredient());
+            }
+
+        Step[] steps = recipe.getSteps();
+        out.writeInt(countNonNull(steps));
+        if (steps != null)
+            for (Step step : steps){
+                if (step == null) continue;
+                out.writeInt(step.getId());
+                writeString(out, step.getShortDescription());
+                writeString(out, step.getDescription());
+                writeString(out, step.getVideoURL());
+                writeString(out, step.getThumbnailURL());
+            }
+    }
+
+    private static int countNonNull(@Nullable Object[] values){
+        if (values == null) return 0;
+        int count = 0;
+        for (Object value : values) if (value != null) count++;
+        return count;
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null){
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /* 64 bit FNV-1a, never zero so zero can mean unknown */
+    static long hash(byte[] bytes){
+        long hash = FNV_OFFSET;
+        for (byte b : bytes){
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /* Recipes encoded and hashed, ready to be written out */
+    public static class Encoded {
+
+        private final Recipe[] mRecipes;
+        private final byte[][] mRecords;
+
+        private Encoded(Recipe[] recipes, byte[][] records){
+            mRecipes = recipes;
+            mRecords = records;
+        }
+
+        /* Writes to a temporary file first so a crash never leaves a half written catalog behind.
+         * Every write gets its own temporary file, so writers on different threads never mix. */
+        public void writeTo(File file) throws IOException {
+            File tempFile = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))){
+                writeTo(out);
+            } catch (IOException e){
+                tempFile.delete();
+                throw e;
+            }
+            if (!tempFile.renameTo(file)){
+                tempFile.delete();
+                throw new IOException("Unable to replace " + file);
+            }
+        }
+
+        /* The whole catalog file in memory */
+        public byte[] toByteArray(){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                writeTo(new DataOutputStream(bytes));
+            } catch (IOException e){
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mRecords.length);
+            int offset = HEADER_BYTES + mRecords.length * ENTRY_BYTES;
+            for (int i = 0; i < mRecords.length; i++){
+                out.writeInt(mRecipes[i].getId());
+                out.writeLong(mRecipes[i].getContentHash());
+                out.writeInt(offset);
+                offset += mRecords[i].length;
+            }
+            for (byte[] record : mRecords) out.write(record);
+            out.flush();
+        }
+    }
+}
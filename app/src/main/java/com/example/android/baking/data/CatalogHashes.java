@@ -0,0 +1,25 @@
+package com.example.android.baking.data;
+
+/* Ids and content hashes of a catalog in catalog order, so a later sync can tell which recipes
+ * changed without decoding the saved catalog again. The binary catalog keeps them in its table. */
+class CatalogHashes {
+
+    final int[] mIds;
+    final long[] mHashes;
+
+    CatalogHashes(int[] ids, long[] hashes){
+        mIds = ids;
+        mHashes = hashes;
+    }
+
+    /* Recipes must already carry their hashes */
+    static CatalogHashes of(Recipe[] recipes){
+        int[] ids = new int[recipes.length];
+        long[] hashes = new long[recipes.length];
+        for (int i = 0; i < recipes.length; i++){
+            ids[i] = recipes[i].getId();
+            hashes[i] = recipes[i].getContentHash();
+        }
+        return new CatalogHashes(ids, hashes);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.baking.data;
+
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/* One background sync of the catalog, run by the scheduler whenever its constraints are met.
+ * Keeps the saved catalog current so launches start from disk instead of the network. */
+public class CatalogSync {
+
+    public enum Outcome {
+        // Synced recently enough, nothing was requested
+        SKIPPED,
+        UNCHANGED,
+        CHANGED,
+        // Failed, the scheduler should try again after its backoff
+        RETRY,
+        // Failed on the last attempt, the next period tries again
+        FAILED
+    }
+
+    public interface Listener {
+        /* Called on the sync thread with what changed, the new catalog is already saved */
+        void onCatalogChanged(ChangeSet changes);
+    }
+
+    private final RecipeRepository mRepository;
+    private final SyncPolicy mPolicy;
+    private final Listener mListener;
+
+    public CatalogSync(RecipeRepository repository, SyncPolicy policy, Listener listener){
+        mRepository = repository;
+        mPolicy = policy;
+        mListener = listener;
+    }
+
+    /* Attempts count from zero, the caller records the time of every UNCHANGED or CHANGED outcome */
+    @WorkerThread
+    public Outcome run(long lastSyncMillis, int attempt){
+        if (!mPolicy.isDue(lastSyncMillis)){
+            Timber.d("Catalog synced %s ms ago, skipping", mPolicy.now() - lastSyncMillis);
+            return Outcome.SKIPPED;
+        }
+
+        ChangeSet changes;
+        try {
+            changes = mRepository.syncCatalog();
+        } catch (IOException | RuntimeException e){
+            Timber.d("Catalog sync attempt %s failed: %s", attempt, e.getMessage());
+            return mPolicy.shouldRetry(attempt) ? Outcome.RETRY : Outcome.FAILED;
+        }
+
+        if (changes == null){
+            Timber.d("Catalog sync found no changes");
+            return Outcome.UNCHANGED;
+        }
+        Timber.d("Catalog sync saved %s", changes);
+        mListener.onCatalogChanged(changes);
+        return Outcome.CHANGED;
+    }
+}
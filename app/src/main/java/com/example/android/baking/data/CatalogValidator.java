@@ -0,0 +1,78 @@
+package com.example.android.baking.data;
+
+import androidx.annotation.Nullable;
+
+import com.example.android.baking.utils.NetworkUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import okhttp3.Headers;
+
+/* The ETag and Last-Modified of the response the saved catalog was built from, kept in a file next
+ * to it. Conditional requests only send these back, so an unchanged answer always means unchanged
+ * from the catalog on disk, never from a body the http cache kept that the app did not get to save. */
+class CatalogValidator {
+
+    private static final String SUFFIX = ".validator";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Nullable private final String mETag;
+    @Nullable private final String mLastModified;
+
+    CatalogValidator(@Nullable String eTag, @Nullable String lastModified){
+        mETag = eTag;
+        mLastModified = lastModified;
+    }
+
+    /* The validators a response carries, null when it has neither */
+    @Nullable
+    static CatalogValidator of(Headers headers){
+        String eTag = headers.get(NetworkUtils.HEADER_ETAG);
+        String lastModified = headers.get(NetworkUtils.HEADER_LAST_MODIFIED);
+        return eTag == null && lastModified == null ? null : new CatalogValidator(eTag, lastModified);
+    }
+
+    static File fileFor(File catalogFile){
+        return new File(catalogFile.getPath() + SUFFIX);
+    }
+
+    /* The saved validators, null when there are none. A file cut short only fails to match */
+    @Nullable
+    static CatalogValidator read(File file) throws IOException {
+        if (!file.exists()) return null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))){
+            String eTag = emptyToNull(reader.readLine());
+            String lastModified = emptyToNull(reader.readLine());
+            return eTag == null && lastModified == null ? null : new CatalogValidator(eTag, lastModified);
+        }
+    }
+
+    void writeTo(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)){
+            writer.write((mETag == null ? "" : mETag) + "\n" + (mLastModified == null ? "" : mLastModified) + "\n");
+        }
+    }
+
+    @Nullable
+    String getETag(){
+        return mETag;
+    }
+
+    @Nullable
+    String getLastModified(){
+        return mLastModified;
+    }
+
+    @Nullable
+    private static String emptyToNull(@Nullable String value){
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
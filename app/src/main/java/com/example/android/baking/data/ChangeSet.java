@@ -0,0 +1,119 @@
+package com.example.android.baking.data;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/* What a refresh changed, worked out from recipe content hashes, and the catalog it led to.
+ * Consumers holding the catalog it follows can apply just these changes instead of going over
+ * the whole catalog again. */
+public class ChangeSet {
+
+    private static final int[] NONE = new int[0];
+
+    private final Recipe[] mRecipes;
+    // Positions in the new catalog
+    private final int[] mAdded;
+    private final int[] mUpdated;
+    // Ids no longer in the catalog
+    private final int[] mRemoved;
+    private final boolean mReordered;
+    // The catalog these changes were worked out against, compared by identity only
+    @Nullable private final Recipe[] mBase;
+
+    private ChangeSet(Recipe[] recipes, int[] added, int[] updated, int[] removed, boolean reordered,
+                      @Nullable Recipe[] base){
+        mRecipes = recipes;
+        mAdded = added;
+        mUpdated = updated;
+        mRemoved = removed;
+        mReordered = reordered;
+        mBase = base;
+    }
+
+    /* Every recipe added, for a catalog delivered for the first time */
+    public static ChangeSet everything(Recipe[] recipes){
+        int[] added = new int[recipes.length];
+        for (int i = 0; i < added.length; i++) added[i] = i;
+        return new ChangeSet(recipes, added, NONE, NONE, false, null);
+    }
+
+    /* Compares a fresh catalog with the hashes of an older one. Recipes that did not change are
+     * swapped for their instance in previous when it is given, so consumers can tell unchanged
+     * recipes apart by identity. Previous must be the catalog the old hashes were taken from. */
+    static ChangeSet compare(CatalogHashes old, Recipe[] fresh, @Nullable Recipe[] previous){
+        Map<Integer, Integer> oldPositions = new HashMap<>(old.mIds.length * 2);
+        for (int i = 0; i < old.mIds.length; i++) oldPositions.put(old.mIds[i], i);
+
+        int[] added = new int[fresh.length];
+        int[] updated = new int[fresh.length];
+        int addedCount = 0;
+        int updatedCount = 0;
+        int kept = 0;
+        boolean reordered = false;
+        boolean[] seen = new boolean[old.mIds.length];
+        for (int i = 0; i < fresh.length; i++){
+            Integer oldPosition = oldPositions.get(fresh[i].getId());
+            if (oldPosition == null){
+                added[addedCount++] = i;
+                continue;
+            }
+            seen[oldPosition] = true;
+            // Kept recipes must appear in the same relative order as before
+            if (oldPosition < kept) reordered = true;
+            kept = oldPosition;
+            if (old.mHashes[oldPosition] != fresh[i].getContentHash()) updated[updatedCount++] = i;
+            else if (previous != null) fresh[i] = previous[oldPosition];
+        }
+
+        int removedCount = 0;
+        int[] removed = new int[old.mIds.length];
+        for (int i = 0; i < seen.length; i++) if (!seen[i]) removed[removedCount++] = old.mIds[i];
+
+        return new ChangeSet(fresh, Arrays.copyOf(added, addedCount), Arrays.copyOf(updated, updatedCount),
+                Arrays.copyOf(removed, removedCount), reordered, previous);
+    }
+
+    /* True when these changes were worked out against exactly this catalog array */
+    public boolean follows(@Nullable Recipe[] catalog){
+        return catalog != null && catalog == mBase;
+    }
+
+    /* The new catalog, positions of added and updated recipes point into it */
+    public Recipe[] getRecipes(){
+        return mRecipes;
+    }
+
+    public int[] getAdded(){
+        return mAdded;
+    }
+
+    public int[] getUpdated(){
+        return mUpdated;
+    }
+
+    public int[] getRemoved(){
+        return mRemoved;
+    }
+
+    public boolean isReordered(){
+        return mReordered;
+    }
+
+    public boolean isEmpty(){
+        return mAdded.length == 0 && mUpdated.length == 0 && mRemoved.length == 0 && !mReordered;
+    }
+
+    /* Recipes added, updated or removed */
+    public int size(){
+        return mAdded.length + mUpdated.length + mRemoved.length;
+    }
+
+    @Override
+    public String toString() {
+        return mAdded.length + " added, " + mUpdated.length + " updated, " + mRemoved.length + " removed"
+                + (mReordered ? ", reordered" : "");
+    }
+}
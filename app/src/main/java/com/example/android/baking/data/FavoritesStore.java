@@ -0,0 +1,475 @@
+package com.example.android.baking.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/* Recipes saved from the steps screen. A small index of ids, save times and names is held in
+ * memory, each recipe is kept as json in a file of its own, so looking one up never reads the
+ * others. Saving and removing only change memory on the calling thread, the files are written
+ * in batches on the disk thread and lookups see pending writes until they land. The main thread
+ * reads a snapshot published after every change, so it never waits for the lock the disk thread
+ * holds while it reads the index. */
+public class FavoritesStore {
+
+    private static final String DIRECTORY_NAME = "favorites";
+    private static final String INDEX_FILE_NAME = "index";
+    private static final int INDEX_VERSION = 1;
+
+    // Earlier versions kept a single saved recipe in shared preferences, it is imported once
+    private static final String LEGACY_PREFS_NAME = "pref";
+    private static final String LEGACY_RECIPE_KEY = "recipe";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Object LOCK = new Object();
+    private static FavoritesStore sInstance;
+
+    private final File mDirectory;
+    @Nullable private final SharedPreferences mLegacyPrefs;
+    private final AppExecutors mExecutors;
+    private final Gson mGson = JsonUtils.getGson();
+
+    // Guarded by this. Newest first, and by id.
+    private final List<Favorite> mBySavedTime = new ArrayList<>();
+    private final Map<Integer, Favorite> mById = new HashMap<>();
+    private boolean mLoaded;
+    // Replaced whole while holding the lock, read without it
+    private volatile Snapshot mSnapshot = new Snapshot(false, new ArrayList<Favorite>());
+    // Guarded by this. Recipes waiting to be written, null for recipes waiting to be deleted.
+    private final Map<Integer, Recipe> mPending = new LinkedHashMap<>();
+    private boolean mIndexDirty;
+    private boolean mFlushScheduled;
+
+    // Only touched from the main thread
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    public interface Listener {
+        /* Called on the main thread once the index is loaded and whenever a favorite changes */
+        void onFavoritesChanged();
+    }
+
+    /* An entry of the index, enough to list favorites without opening their files */
+    public static class Favorite {
+        private final int mId;
+        private final String mName;
+        private final long mSavedAt;
+
+        Favorite(int id, String name, long savedAt){
+            mId = id;
+            mName = name;
+            mSavedAt = savedAt;
+        }
+
+        public int getId(){
+            return mId;
+        }
+
+        public String getName(){
+            return mName;
+        }
+
+        public long getSavedAt(){
+            return mSavedAt;
+        }
+    }
+
+    /* The index as it was after a change, never modified once published */
+    private static class Snapshot {
+        final boolean mLoaded;
+        final List<Favorite> mBySavedTime;
+        final Set<Integer> mIds = new HashSet<>();
+
+        Snapshot(boolean loaded, List<Favorite> bySavedTime){
+            mLoaded = loaded;
+            mBySavedTime = Collections.unmodifiableList(bySavedTime);
+            for (Favorite favorite : bySavedTime) mIds.add(favorite.mId);
+        }
+    }
+
+    private static final Comparator<Favorite> NEWEST_FIRST = new Comparator<Favorite>() {
+        @Override
+        public int compare(Favorite a, Favorite b) {
+            return a.mSavedAt < b.mSavedAt ? 1 : a.mSavedAt > b.mSavedAt ? -1 : 0;
+        }
+    };
+
+    @VisibleForTesting
+    FavoritesStore(File directory, @Nullable SharedPreferences legacyPrefs, AppExecutors executors){
+        mDirectory = directory;
+        mLegacyPrefs = legacyPrefs;
+        mExecutors = executors;
+    }
+
+    public static FavoritesStore getInstance(Context context){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null){
+                    Context appContext = context.getApplicationContext();
+                    sInstance = new FavoritesStore(new File(appContext.getFilesDir(), DIRECTORY_NAME),
+                            appContext.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE),
+                            AppExecutors.getInstance());
+                    sInstance.loadAsync();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* Reads the index on the disk thread and tells listeners when it is there */
+    @VisibleForTesting
+    void loadAsync(){
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (FavoritesStore.this){
+                    ensureLoaded();
+                }
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        notifyListeners();
+                    }
+                });
+            }
+        });
+    }
+
+    @MainThread
+    public void addListener(@NonNull Listener listener){
+        if (!mListeners.contains(listener)) mListeners.add(listener);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener listener){
+        mListeners.remove(listener);
+    }
+
+    /* False until the index has been read, favorites should not be toggled before */
+    public boolean isLoaded(){
+        return mSnapshot.mLoaded;
+    }
+
+    public boolean isFavorite(int recipeId){
+        return mSnapshot.mIds.contains(recipeId);
+    }
+
+    /* Newest first */
+    public List<Favorite> getFavorites(){
+        return new ArrayList<>(mSnapshot.mBySavedTime);
+    }
+
+    /* Saves a recipe, or moves it to the front when it is already saved. Never touches disk. */
+    @MainThread
+    public void add(@NonNull Recipe recipe){
+        synchronized (this){
+            Favorite old = mById.remove(recipe.getId());
+            if (old != null) mBySavedTime.remove(old);
+            Favorite favorite = new Favorite(recipe.getId(), recipe.getName(), System.currentTimeMillis());
+            mBySavedTime.add(0, favorite);
+            mById.put(favorite.mId, favorite);
+            mPending.put(favorite.mId, recipe);
+            publish();
+        }
+        scheduleFlush();
+        notifyListeners();
+    }
+
+    @MainThread
+    public void remove(int recipeId){
+        synchronized (this){
+            Favorite old = mById.remove(recipeId);
+            if (old == null) return;
+            mBySavedTime.remove(old);
+            mPending.put(recipeId, null);
+            publish();
+        }
+        scheduleFlush();
+        notifyListeners();
+    }
+
+    /* Json of a saved recipe, only its own file is read */
+    @WorkerThread
+    @Nullable
+    public String getRecipeJson(int recipeId){
+        Recipe pending;
+        synchronized (this){
+            ensureLoaded();
+            if (!mById.containsKey(recipeId)) return null;
+            pending = mPending.get(recipeId);
+        }
+        if (pending != null) return mGson.toJson(pending);
+        return readRecipeJson(recipeFile(recipeId));
+    }
+
+    /* Json of the most recently saved recipe, what widgets without a pin of their own show */
+    @WorkerThread
+    @Nullable
+    public String getLatestJson(){
+        int newest;
+        synchronized (this){
+            ensureLoaded();
+            if (mBySavedTime.isEmpty()) return null;
+            newest = mBySavedTime.get(0).mId;
+        }
+        return getRecipeJson(newest);
+    }
+
+    /* Swaps saved recipes that were updated for their new version. Returns true when any changed. */
+    @WorkerThread
+    public boolean refreshRecipes(Map<Integer, Recipe> updatedById){
+        boolean changed = false;
+        for (Map.Entry<Integer, Recipe> entry : updatedById.entrySet()){
+            String stored = getRecipeJson(entry.getKey());
+            if (stored == null || stored.equals(mGson.toJson(entry.getValue()))) continue;
+            synchronized (this){
+                Favorite old = mById.get(entry.getKey());
+                if (old == null) continue;
+                Favorite favorite = new Favorite(old.mId, entry.getValue().getName(), old.mSavedAt);
+                mBySavedTime.set(mBySavedTime.indexOf(old), favorite);
+                mById.put(favorite.mId, favorite);
+                mPending.put(favorite.mId, entry.getValue());
+                publish();
+            }
+            changed = true;
+        }
+        if (changed){
+            scheduleFlush();
+            mExecutors.mainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    notifyListeners();
+                }
+            });
+        }
+        return changed;
+    }
+
+    /* Changes made before the disk thread gets to the flush are written together */
+    private void scheduleFlush(){
+        synchronized (this){
+            mIndexDirty = true;
+            if (mFlushScheduled) return;
+            mFlushScheduled = true;
+        }
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+    }
+
+    /* Writes every pending change. Recipe files go first and deleted ones last, so the index
+     * never names a file that is not there yet. Whatever fails to land stays pending, along with
+     * the index, and is written with the next batch. */
+    @VisibleForTesting
+    @WorkerThread
+    void flush(){
+        Map<Integer, Recipe> pending;
+        List<Favorite> index = null;
+        synchronized (this){
+            ensureLoaded();
+            mFlushScheduled = false;
+            pending = new LinkedHashMap<>(mPending);
+            if (mIndexDirty) index = new ArrayList<>(mBySavedTime);
+            mIndexDirty = false;
+        }
+        if (pending.isEmpty() && index == null) return;
+        if (!mDirectory.exists() && !mDirectory.mkdirs()){
+            Timber.e("Unable to create %s", mDirectory);
+            synchronized (this){
+                if (index != null) mIndexDirty = true;
+            }
+            return;
+        }
+
+        Set<Integer> written = new HashSet<>();
+        boolean recipesWritten = true;
+        for (Map.Entry<Integer, Recipe> entry : pending.entrySet()){
+            if (entry.getValue() == null) continue;
+            if (writeRecipe(entry.getKey(), entry.getValue())) written.add(entry.getKey());
+            else recipesWritten = false;
+        }
+        // An index naming a recipe that failed to write would lose it, so it waits for that recipe
+        boolean indexWritten = index == null || (recipesWritten && writeIndex(index));
+        if (indexWritten){
+            for (Map.Entry<Integer, Recipe> entry : pending.entrySet()){
+                if (entry.getValue() == null) recipeFile(entry.getKey()).delete();
+            }
+        }
+
+        int landed = 0;
+        synchronized (this){
+            if (!indexWritten) mIndexDirty = true;
+            // Changes made while writing stay pending for the next flush
+            for (Map.Entry<Integer, Recipe> entry : pending.entrySet()){
+                boolean done = entry.getValue() == null ? indexWritten : written.contains(entry.getKey());
+                if (!done) continue;
+                landed++;
+                if (mPending.get(entry.getKey()) == entry.getValue()) mPending.remove(entry.getKey());
+            }
+        }
+        Timber.d("Wrote %s of %s favorite changes", landed, pending.size());
+    }
+
+    /* Merges the saved index under anything changed before it was read. Holding the lock. */
+    private void ensureLoaded(){
+        if (mLoaded) return;
+        mLoaded = true;
+        for (Favorite favorite : readIndex()){
+            if (mPending.containsKey(favorite.mId)) continue;
+            mBySavedTime.add(favorite);
+            mById.put(favorite.mId, favorite);
+        }
+        Collections.sort(mBySavedTime, NEWEST_FIRST);
+        importLegacyRecipe();
+        publish();
+    }
+
+    /* Holding the lock */
+    private void publish(){
+        mSnapshot = new Snapshot(mLoaded, new ArrayList<>(mBySavedTime));
+    }
+
+    private void importLegacyRecipe(){
+        if (mLegacyPrefs == null) return;
+        String json = mLegacyPrefs.getString(LEGACY_RECIPE_KEY, null);
+        if (json == null) return;
+        try {
+            Recipe recipe = mGson.fromJson(json, Recipe.class);
+            if (recipe != null && !mById.containsKey(recipe.getId())){
+                Favorite favorite = new Favorite(recipe.getId(), recipe.getName(), System.currentTimeMillis());
+                mBySavedTime.add(0, favorite);
+                mById.put(favorite.mId, favorite);
+                mPending.put(favorite.mId, recipe);
+                scheduleFlush();
+            }
+        } catch (JsonParseException e){
+            Timber.e(e, "Discarding unreadable saved recipe");
+        }
+        mLegacyPrefs.edit().remove(LEGACY_RECIPE_KEY).apply();
+    }
+
+    private List<Favorite> readIndex(){
+        List<Favorite> favorites = new ArrayList<>();
+        File file = new File(mDirectory, INDEX_FILE_NAME);
+        if (!file.exists()) return favorites;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if (in.readInt() != INDEX_VERSION) throw new IOException("Unknown favorites index version");
+            int count = in.readInt();
+            for (int i = 0; i < count; i++){
+                int id = in.readInt();
+                long savedAt = in.readLong();
+                favorites.add(new Favorite(id, in.readUTF(), savedAt));
+            }
+        } catch (IOException e){
+            Timber.e(e, "Discarding unreadable favorites index");
+            favorites.clear();
+        }
+        return favorites;
+    }
+
+    /* Writes to a temporary file first so a crash never leaves a half written index behind.
+     * Returns false when the index was not replaced. */
+    private boolean writeIndex(List<Favorite> favorites){
+        File file = new File(mDirectory, INDEX_FILE_NAME);
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))){
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(favorites.size());
+            for (Favorite favorite : favorites){
+                out.writeInt(favorite.mId);
+                out.writeLong(favorite.mSavedAt);
+                out.writeUTF(favorite.mName == null ? "" : favorite.mName);
+            }
+        } catch (IOException e){
+            Timber.e(e, "Unable to write favorites index");
+            tempFile.delete();
+            return false;
+        }
+        if (!tempFile.renameTo(file)){
+            Timber.e("Unable to replace favorites index");
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /* Returns false when the recipe's file was not replaced */
+    private boolean writeRecipe(int recipeId, Recipe recipe){
+        File file = recipeFile(recipeId);
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), UTF_8)){
+            mGson.toJson(recipe, writer);
+        } catch (IOException e){
+            Timber.e(e, "Unable to write favorite %s", recipeId);
+            tempFile.delete();
+            return false;
+        }
+        if (!tempFile.renameTo(file)){
+            Timber.e("Unable to replace favorite %s", recipeId);
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    private static String readRecipeJson(File file){
+        if (!file.exists()) return null;
+        StringBuilder builder = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8)){
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) builder.append(buffer, 0, read);
+            return builder.toString();
+        } catch (IOException e){
+            Timber.e(e, "Unable to read favorite %s", file.getName());
+            return null;
+        }
+    }
+
+    private File recipeFile(int recipeId){
+        return new File(mDirectory, "recipe_" + recipeId + ".json");
+    }
+
+    private void notifyListeners(){
+        for (Listener listener : new ArrayList<>(mListeners)) listener.onFavoritesChanged();
+    }
+}
@@ -3,6 +3,8 @@ package com.example.android.baking.data;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import androidx.core.util.ObjectsCompat;
+
 import com.google.gson.annotations.SerializedName;
 
 public class Ingredient implements Parcelable {
@@ -37,6 +39,21 @@ public class Ingredient implements Parcelable {
         return quantity;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Ingredient)) return false;
+        Ingredient other = (Ingredient) o;
+        return Double.compare(quantity, other.quantity) == 0
+                && ObjectsCompat.equals(measure, other.measure)
+                && ObjectsCompat.equals(ingredient, other.ingredient);
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectsCompat.hash(quantity, measure, ingredient);
+    }
+
     @Override
     public int describeContents() {
         return 0;
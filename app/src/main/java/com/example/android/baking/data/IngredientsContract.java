@@ -0,0 +1,33 @@
+package com.example.android.baking.data;
+
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+/* Describes the ingredient rows of the recipe shown by each widget */
+public class IngredientsContract {
+
+    public static final String AUTHORITY = "com.example.android.baking.ingredients";
+    public static final String PATH_WIDGET = "widget";
+
+    public static final Uri CONTENT_URI = new Uri.Builder()
+            .scheme("content")
+            .authority(AUTHORITY)
+            .appendPath(PATH_WIDGET)
+            .build();
+
+    /* Rows of the recipe pinned to one widget, or of the saved recipe when it has no pin */
+    public static Uri buildWidgetUri(int appWidgetId){
+        return ContentUris.withAppendedId(CONTENT_URI, appWidgetId);
+    }
+
+    public static final class IngredientEntry implements BaseColumns {
+        public static final String COLUMN_QUANTITY = "quantity";
+        public static final String COLUMN_MEASURE = "measure";
+        public static final String COLUMN_INGREDIENT = "ingredient";
+
+        public static final String[] ALL_COLUMNS = {
+                _ID, COLUMN_QUANTITY, COLUMN_MEASURE, COLUMN_INGREDIENT
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.android.baking.data;
+
+import android.content.ContentProvider;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.baking.data.IngredientsContract.IngredientEntry;
+import com.example.android.baking.json.IngredientTypeAdapter;
+import com.example.android.baking.widget.WidgetPinStore;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/* Serves each widget's ingredients from an in memory snapshot. A recipe is only read again after
+ * the pin behind it changes. Pinned recipes are decoded from the saved catalog, favorites have
+ * only their ingredients read from the json. */
+public class IngredientsProvider extends ContentProvider {
+
+    private static final int CODE_WIDGET = 100;
+    private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+    static {
+        sUriMatcher.addURI(IngredientsContract.AUTHORITY, IngredientsContract.PATH_WIDGET + "/#", CODE_WIDGET);
+    }
+
+    private final IngredientTypeAdapter mIngredientAdapter = new IngredientTypeAdapter();
+
+    // Rows in IngredientEntry.ALL_COLUMNS order per widget id, filled as widgets ask for them
+    private final SparseArray<List<Object[]>> mSnapshots = new SparseArray<>();
+
+    private WidgetPinStore mPinStore;
+
+    // Held as a field since shared preferences only keep weak references to listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPinnedListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                    if (WidgetPinStore.isRecipeKey(key)) invalidateSnapshots();
+                }
+            };
+
+    // Widgets without a pin show the newest favorite
+    private final FavoritesStore.Listener mFavoritesListener = new FavoritesStore.Listener() {
+        @Override
+        public void onFavoritesChanged() {
+            invalidateSnapshots();
+        }
+    };
+
+    @Override
+    public boolean onCreate() {
+        Context context = getContext();
+        mPinStore = new WidgetPinStore(context);
+        FavoritesStore.getInstance(context).addListener(mFavoritesListener);
+        context.getSharedPreferences(WidgetPinStore.PREFS_NAME, Context.MODE_PRIVATE)
+                .registerOnSharedPreferenceChangeListener(mPinnedListener);
+        return true;
+    }
+
+    private void invalidateSnapshots(){
+        synchronized (mSnapshots) { mSnapshots.clear(); }
+        getContext().getContentResolver().notifyChange(IngredientsContract.CONTENT_URI, null);
+        Timber.d("Pinned recipe changed, ingredient snapshots invalidated");
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        if (sUriMatcher.match(uri) != CODE_WIDGET)
+            throw new UnsupportedOperationException("Unknown uri: " + uri);
+        int appWidgetId = (int) ContentUris.parseId(uri);
+
+        if (projection == null) projection = IngredientEntry.ALL_COLUMNS;
+        int[] columnIndexes = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) columnIndexes[i] = columnIndex(projection[i]);
+
+        List<Object[]> rows = getSnapshot(appWidgetId);
+        MatrixCursor cursor = new MatrixCursor(projection, rows.size());
+        for (Object[] row : rows){
+            Object[] projected = new Object[projection.length];
+            for (int i = 0; i < columnIndexes.length; i++) projected[i] = row[columnIndexes[i]];
+            cursor.addRow(projected);
+        }
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    private List<Object[]> getSnapshot(int appWidgetId){
+        synchronized (mSnapshots){
+            List<Object[]> snapshot = mSnapshots.get(appWidgetId);
+            if (snapshot == null){
+                Recipe pinned = mPinStore.getPinnedRecipe(appWidgetId);
+                snapshot = pinned != null ? ingredientRows(pinned.getIngredients())
+                        : readFavoriteIngredients(mPinStore.getFavoriteJson(appWidgetId));
+                mSnapshots.put(appWidgetId, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private static List<Object[]> ingredientRows(@Nullable Ingredient[] ingredients){
+        List<Object[]> rows = new ArrayList<>();
+        if (ingredients == null) return rows;
+        for (Ingredient ingredient : ingredients){
+            if (ingredient == null) continue;
+            rows.add(new Object[]{
+                    rows.size(),
+                    ingredient.getQuantity(),
+                    ingredient.getMeasure(),
+                    ingredient.getIngredient()});
+        }
+        return rows;
+    }
+
+    /* Reads only the ingredients of a favorite, steps are skipped without being built */
+    private List<Object[]> readFavoriteIngredients(@Nullable String recipeJson){
+        List<Object[]> rows = new ArrayList<>();
+        if (recipeJson == null) return rows;
+
+        try (JsonReader reader = new JsonReader(new StringReader(recipeJson))){
+            reader.beginObject();
+            while (reader.hasNext()){
+                if (!"ingredients".equals(reader.nextName()) || reader.peek() == JsonToken.NULL){
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()){
+                    if (reader.peek() == JsonToken.NULL){
+                        reader.nextNull();
+                        continue;
+                    }
+                    Ingredient ingredient = mIngredientAdapter.read(reader);
+                    rows.add(new Object[]{
+                            rows.size(),
+                            ingredient.getQuantity(),
+                            ingredient.getMeasure(),
+                            ingredient.getIngredient()});
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e){
+            Timber.e(e, "Unable to read favorite recipe");
+            rows.clear();
+        }
+        Timber.d("Read %s favorite ingredients", rows.size());
+        return rows;
+    }
+
+    private static int columnIndex(String column){
+        for (int i = 0; i < IngredientEntry.ALL_COLUMNS.length; i++){
+            if (IngredientEntry.ALL_COLUMNS[i].equals(column)) return i;
+        }
+        throw new IllegalArgumentException("Unknown column: " + column);
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException("Ingredients are read only");
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Ingredients are read only");
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Ingredients are read only");
+    }
+}
@@ -3,8 +3,12 @@ package com.example.android.baking.data;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import androidx.core.util.ObjectsCompat;
+
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Arrays;
+
 public class Recipe implements Parcelable {
 
     @SerializedName("id")
@@ -19,6 +23,8 @@ public class Recipe implements Parcelable {
     private int servings;
     @SerializedName("image")
     private String image;
+    // Hash of the recipe's json, set by the repository and never serialized, zero when unknown
+    private transient long contentHash;
 
     // Empty constructor
     public Recipe(){}
@@ -60,6 +66,36 @@ public class Recipe implements Parcelable {
     public void setImage(String image) {
         this.image = image;
     }
+    public long getContentHash() {
+        return contentHash;
+    }
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /* Content equality, lets list diffs tell a changed recipe from an unchanged one */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Recipe)) return false;
+        Recipe recipe = (Recipe) o;
+        // Known hashes settle it without walking ingredients and steps or decoding descriptions
+        if (contentHash != 0 && recipe.contentHash != 0) return id == recipe.id && contentHash == recipe.contentHash;
+        return id == recipe.id
+                && servings == recipe.servings
+                && ObjectsCompat.equals(name, recipe.name)
+                && ObjectsCompat.equals(image, recipe.image)
+                && Arrays.equals(ingredients, recipe.ingredients)
+                && Arrays.equals(steps, recipe.steps);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = ObjectsCompat.hash(id, name, servings, image);
+        result = 31 * result + Arrays.hashCode(ingredients);
+        result = 31 * result + Arrays.hashCode(steps);
+        return result;
+    }
 
     @Override
     public int describeContents() {
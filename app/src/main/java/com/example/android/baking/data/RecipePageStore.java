@@ -0,0 +1,70 @@
+package com.example.android.baking.data;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/* Pages of the catalog saved one file each in the binary catalog format, so any page can be read
+ * back without the rest and its step descriptions stay on disk until shown. Only used from the
+ * disk thread. */
+class RecipePageStore {
+
+    // Pages saved as json by earlier versions are fetched again rather than converted
+    private static final String LEGACY_SUFFIX = ".json";
+
+    private final File mDirectory;
+
+    RecipePageStore(File directory){
+        mDirectory = directory;
+    }
+
+    /* The saved page, null when it was never saved or cannot be read */
+    @Nullable
+    Recipe[] read(int offset, int limit){
+        File file = pageFile(offset, limit);
+        try {
+            BinaryCatalog page = BinaryCatalog.open(file);
+            if (page == null){
+                new File(mDirectory, pageName(offset, limit) + LEGACY_SUFFIX).delete();
+                return null;
+            }
+            return page.readAll();
+        } catch (IOException | RuntimeException e){
+            Timber.e(e, "Discarding unreadable recipe page at %s", offset);
+            file.delete();
+            return null;
+        }
+    }
+
+    void write(int offset, int limit, Recipe[] recipes){
+        if (!mDirectory.exists() && !mDirectory.mkdirs()){
+            Timber.e("Unable to create %s", mDirectory);
+            return;
+        }
+        try {
+            BinaryCatalog.encode(recipes).writeTo(pageFile(offset, limit));
+        } catch (IOException e){
+            Timber.e(e, "Unable to write recipe page at %s", offset);
+        }
+    }
+
+    /* Deletes every saved page, along with anything else kept beside them */
+    void clear(){
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        for (File file : files){
+            if (!file.delete()) Timber.e("Unable to delete %s", file);
+        }
+    }
+
+    private File pageFile(int offset, int limit){
+        return new File(mDirectory, pageName(offset, limit) + ".bin");
+    }
+
+    private static String pageName(int offset, int limit){
+        return "page_" + offset + "_" + limit;
+    }
+}
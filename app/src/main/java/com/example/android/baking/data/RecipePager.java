@@ -0,0 +1,394 @@
+package com.example.android.baking.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.NetworkUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import retrofit2.Response;
+import timber.log.Timber;
+
+/* Browses the catalog a page at a time. Rows ask for their recipe by position, which loads its
+ * page, prefetches the neighbouring page near either edge and drops pages far from it, so only a
+ * few pages are ever held however long the catalog is. Each page is shown from disk first and
+ * fetched from the network once per process. All methods must be called from the main thread. */
+public class RecipePager {
+
+    public static final int PAGE_SIZE = 20;
+    // The page being looked at and two either side of it
+    private static final int RESIDENT_PAGES = 5;
+    private static final String PAGES_DIR = "recipe_pages";
+
+    private static final Object LOCK = new Object();
+    private static RecipePager sInstance;
+
+    public interface Listener {
+        void onItemsInserted(int positionStart, int itemCount);
+        void onItemsChanged(int positionStart, int itemCount);
+        void onItemsRemoved(int positionStart, int itemCount);
+        /* Called only when the first page is neither saved nor reachable */
+        void onFirstPageUnavailable(Throwable t);
+    }
+
+    /* Where pages come from, offset and limit count recipes */
+    public interface PageSource {
+        /* At most limit recipes starting at offset, fewer only at the end of the catalog */
+        Recipe[] loadPage(int offset, int limit) throws IOException;
+    }
+
+    private final PageSource mSource;
+    private final RecipePageStore mStore;
+    private final AppExecutors mExecutors;
+    private final int mPageSize;
+    private final int mResidentPages;
+    private final int mPrefetchDistance;
+
+    @Nullable private Listener mListener;
+    private final Map<Integer, Recipe[]> mResident = new HashMap<>();
+    private final Set<Integer> mLoading = new HashSet<>();
+    // Pages already fetched from the network, after eviction they come back from disk
+    private final Set<Integer> mFetched = new HashSet<>();
+    // Positions known so far, grows as pages past the end arrive
+    private int mCount;
+    private boolean mEndReached;
+    // The page of the last position asked for, pages far from it are dropped
+    private int mCurrentPage;
+
+    @VisibleForTesting
+    RecipePager(PageSource source, File pagesDir, AppExecutors executors, int pageSize, int residentPages){
+        mSource = source;
+        mStore = new RecipePageStore(pagesDir);
+        mExecutors = executors;
+        mPageSize = pageSize;
+        mResidentPages = residentPages;
+        mPrefetchDistance = Math.max(pageSize / 4, 1);
+    }
+
+    public static RecipePager getInstance(Context context){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null){
+                    Context appContext = context.getApplicationContext();
+                    File pagesDir = new File(appContext.getFilesDir(), PAGES_DIR);
+                    sInstance = new RecipePager(new ServicePageSource(appContext, pagesDir), pagesDir,
+                            AppExecutors.getInstance(), PAGE_SIZE, RESIDENT_PAGES);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* Replaces every saved page with the first page of a catalog that changed, so the next launch
+     * shows it from disk and later pages are fetched again instead of shown from the older catalog.
+     * A pager already running forgets which pages it fetched. */
+    @WorkerThread
+    public static void onCatalogChanged(Context context, Recipe[] catalog){
+        invalidatePages(new File(context.getApplicationContext().getFilesDir(), PAGES_DIR), catalog);
+        final RecipePager pager = sInstance;
+        if (pager == null) return;
+        pager.mExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                pager.invalidate();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    @WorkerThread
+    static void invalidatePages(File pagesDir, Recipe[] catalog){
+        RecipePageStore store = new RecipePageStore(pagesDir);
+        store.clear();
+        store.write(0, PAGE_SIZE, Arrays.copyOf(catalog, Math.min(catalog.length, PAGE_SIZE)));
+    }
+
+    /* One listener at a time, the screen showing the list */
+    public void setListener(@Nullable Listener listener){
+        mListener = listener;
+    }
+
+    /* Loads the first page if it is not already held, also used to retry after a failure */
+    public void start(){
+        load(0);
+    }
+
+    /* Positions known so far, rows for pages that were dropped still count */
+    public int getCount(){
+        return mCount;
+    }
+
+    /* The recipe at a position, null while its page loads */
+    @Nullable
+    public Recipe get(int position){
+        int page = position / mPageSize;
+        int index = position % mPageSize;
+        mCurrentPage = page;
+        Recipe[] recipes = mResident.get(page);
+        if (recipes == null){
+            load(page);
+            // Loads normally finish later, but a page may already be on hand
+            recipes = mResident.get(page);
+        }
+
+        // Neighbouring pages are loaded before the user reaches them
+        if (index >= mPageSize - mPrefetchDistance && (!mEndReached || (page + 1) * mPageSize < mCount)) load(page + 1);
+        if (index < mPrefetchDistance && page > 0) load(page - 1);
+
+        evictAround(page);
+        return recipes == null || index >= recipes.length ? null : recipes[index];
+    }
+
+    @VisibleForTesting
+    int getResidentPageCount(){
+        return mResident.size();
+    }
+
+    private void load(final int page){
+        if (mResident.containsKey(page) || mLoading.contains(page)) return;
+        mLoading.add(page);
+        final int offset = page * mPageSize;
+        final boolean fetch = !mFetched.contains(page);
+
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Recipe[] saved = mStore.read(offset, mPageSize);
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (saved != null) onPageLoaded(page, saved);
+                        if (fetch || saved == null) fetch(page, saved != null);
+                        else mLoading.remove(page);
+                    }
+                });
+            }
+        });
+    }
+
+    private void fetch(final int page, final boolean shownFromDisk){
+        final int offset = page * mPageSize;
+        mExecutors.networkIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Recipe[] recipes = mSource.loadPage(offset, mPageSize);
+                    mExecutors.diskIO().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mStore.write(offset, mPageSize, recipes);
+                        }
+                    });
+                    mExecutors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mLoading.remove(page);
+                            mFetched.add(page);
+                            onPageLoaded(page, recipes);
+                        }
+                    });
+                } catch (final IOException | RuntimeException e){
+                    Timber.d("Recipe page %s failed: %s", page, e.getMessage());
+                    mExecutors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mLoading.remove(page);
+                            if (page == 0 && !shownFromDisk && mListener != null) mListener.onFirstPageUnavailable(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /* Holds the page and tells the listener which positions it added, changed or removed */
+    private void onPageLoaded(int page, Recipe[] recipes){
+        int start = page * mPageSize;
+        // A page past the known end, for example after the catalog shrank, is dropped
+        if (start > mCount) return;
+
+        Recipe[] old = mResident.put(page, recipes);
+        boolean lastPage = recipes.length < mPageSize;
+        int oldCount = mCount;
+        int end = start + recipes.length;
+        if (lastPage){
+            mEndReached = true;
+            mCount = end;
+        } else if (end > mCount){
+            mEndReached = false;
+            mCount = end;
+        }
+
+        if (mListener != null){
+            int changed = Math.min(end, oldCount) - start;
+            if (changed > 0 && (old == null || !Arrays.equals(old, recipes))) mListener.onItemsChanged(start, changed);
+            if (mCount > oldCount) mListener.onItemsInserted(oldCount, mCount - oldCount);
+            else if (mCount < oldCount) mListener.onItemsRemoved(mCount, oldCount - mCount);
+        }
+        if (mCount < oldCount) dropPagesFrom(mCount);
+        // A slow load may land after the list moved on
+        evictAround(mCurrentPage);
+    }
+
+    /* Pages held may come from an older catalog. Without a screen they are dropped and come back as
+     * they are asked for, with one the pages it shows are fetched again so its rows update. */
+    private void invalidate(){
+        mFetched.clear();
+        if (mSource instanceof ServicePageSource) ((ServicePageSource) mSource).reset();
+        if (mListener == null){
+            mResident.clear();
+            return;
+        }
+        for (int page : new ArrayList<>(mResident.keySet())){
+            if (mLoading.add(page)) fetch(page, true);
+        }
+    }
+
+    /* Keeps memory flat by dropping every page too far from the one being looked at */
+    private void evictAround(int page){
+        int keep = mResidentPages / 2;
+        Iterator<Integer> pages = mResident.keySet().iterator();
+        while (pages.hasNext()){
+            if (Math.abs(pages.next() - page) > keep) pages.remove();
+        }
+    }
+
+    private void dropPagesFrom(int position){
+        Iterator<Integer> pages = mResident.keySet().iterator();
+        while (pages.hasNext()){
+            int page = pages.next();
+            if (page > 0 && page * mPageSize >= position) pages.remove();
+        }
+    }
+
+    /* Pages from the recipe service. A server that ignores the paging parameters and returns the
+     * whole catalog is only asked once per process, its catalog is saved in the binary format and
+     * later pages are decoded from that file as they are needed. One whose whole catalog fits a
+     * page cannot be told apart that way, it answers every offset with the first page again, which
+     * is taken as the end of the catalog. */
+    static class ServicePageSource implements PageSource {
+
+        private static final String CATALOG_FILE_NAME = "catalog.bin";
+
+        @Nullable private final Context mAppContext;
+        private final File mCatalogFile;
+        @Nullable private GetRecipesService mService;
+        // Set once the server turned out to ignore paging
+        @Nullable private volatile BinaryCatalog mCatalog;
+        // Ids of the first page, a later page repeating them means the offset was ignored
+        @Nullable private volatile int[] mFirstPageIds;
+
+        ServicePageSource(Context appContext, File pagesDir){
+            mAppContext = appContext;
+            mCatalogFile = new File(pagesDir, CATALOG_FILE_NAME);
+        }
+
+        @VisibleForTesting
+        ServicePageSource(GetRecipesService service, File pagesDir){
+            mAppContext = null;
+            mCatalogFile = new File(pagesDir, CATALOG_FILE_NAME);
+            mService = service;
+        }
+
+        @Override
+        public Recipe[] loadPage(int offset, int limit) throws IOException {
+            BinaryCatalog catalog = mCatalog;
+            if (catalog != null) return slice(catalog, offset, limit);
+
+            Recipe[] recipes = request(offset, limit);
+            if (recipes.length > limit){
+                Timber.d("Server returned %s recipes for a page of %s, paging its catalog from disk", recipes.length, limit);
+                return slice(keepCatalog(recipes), offset, limit);
+            }
+
+            if (offset == 0) mFirstPageIds = ids(recipes);
+            else if (recipes.length > 0 && Arrays.equals(ids(recipes), getFirstPageIds(limit))){
+                Timber.d("Server repeated the first page at %s, ending the catalog there", offset);
+                return new Recipe[0];
+            }
+            return recipes;
+        }
+
+        private Recipe[] request(int offset, int limit) throws IOException {
+            Response<Recipe[]> response = getService().getRecipePage(offset, limit).execute();
+            Recipe[] recipes = response.body();
+            if (!response.isSuccessful() || recipes == null)
+                throw new IOException("Unexpected response " + response.code());
+            return recipes;
+        }
+
+        /* Normally kept from the first page, asked for again if a later page got here first */
+        private int[] getFirstPageIds(int limit) throws IOException {
+            int[] ids = mFirstPageIds;
+            if (ids == null){
+                ids = ids(request(0, limit));
+                mFirstPageIds = ids;
+            }
+            return ids;
+        }
+
+        private static int[] ids(Recipe[] recipes){
+            int[] ids = new int[recipes.length];
+            for (int i = 0; i < recipes.length; i++) ids[i] = recipes[i].getId();
+            return ids;
+        }
+
+        /* Forgets what was learned about the server's catalog, which has changed since */
+        void reset(){
+            mCatalog = null;
+            mFirstPageIds = null;
+        }
+
+        /* Saves the whole catalog once, or keeps it encoded in memory when it cannot be saved */
+        private synchronized BinaryCatalog keepCatalog(Recipe[] recipes) throws IOException {
+            if (mCatalog != null) return mCatalog;
+            BinaryCatalog.Encoded encoded = BinaryCatalog.encode(recipes);
+            File directory = mCatalogFile.getParentFile();
+            BinaryCatalog catalog = null;
+            try {
+                if (directory.exists() || directory.mkdirs()){
+                    encoded.writeTo(mCatalogFile);
+                    catalog = BinaryCatalog.open(mCatalogFile);
+                }
+            } catch (IOException e){
+                Timber.e(e, "Unable to save the paged catalog");
+            }
+            if (catalog == null) catalog = BinaryCatalog.wrap(ByteBuffer.wrap(encoded.toByteArray()));
+            mCatalog = catalog;
+            return catalog;
+        }
+
+        private static Recipe[] slice(BinaryCatalog catalog, int offset, int limit){
+            int from = Math.min(offset, catalog.size());
+            int to = Math.min(from + limit, catalog.size());
+            Recipe[] page = new Recipe[to - from];
+            for (int position = from; position < to; position++) page[position - from] = catalog.readRecipe(position);
+            return page;
+        }
+
+        /* Only called from the network threads */
+        @NonNull
+        private synchronized GetRecipesService getService(){
+            if (mService == null){
+                mService = NetworkUtils.getRetrofitInstance(mAppContext).create(GetRecipesService.class);
+            }
+            return mService;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package com.example.android.baking.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.core.os.TraceCompat;
+
+import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.JsonUtils;
+import com.example.android.baking.utils.NetworkUtils;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Response;
+import timber.log.Timber;
+
+/* Offline first source of recipes. The catalog saved on disk is handed out first and then
+ * revalidated against the network. It is saved in the binary catalog format, so a single recipe
+ * can be read without the rest and step descriptions are only decoded when shown.
+ * Every recipe carries a content hash, so a refresh works out which recipes were added, updated
+ * or removed, keeps the instances of the rest, and callbacks only fire again with those changes
+ * when there are any.
+ * Every caller shares one disk read and one refresh in flight, results go to whichever callbacks
+ * are registered when they arrive, and a refresh nobody waits for any more is cancelled unless
+ * it already has its answer. */
+public class RecipeRepository {
+
+    public static final String CATALOG_FILE_NAME = "recipe_catalog.bin";
+    // Catalogs saved as json, with their hashes next to them, are converted once
+    private static final String LEGACY_CATALOG_FILE_NAME = "recipe_catalog.json";
+    private static final String LEGACY_HASHES_SUFFIX = ".hashes";
+    // The recipe last opened from the list, which pages through the catalog without saving it here
+    private static final String OPENED_RECIPE_FILE_NAME = "opened_recipe.bin";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Object LOCK = new Object();
+    private static RecipeRepository sInstance;
+
+    private final File mCatalogFile;
+    private final File mLegacyCatalogFile;
+    private final File mOpenedRecipeFile;
+    private final File mValidatorFile;
+    private final AppExecutors mExecutors;
+    // Built on first refresh from the network thread, so creating the repository stays cheap
+    @Nullable private final Context mAppContext;
+    @Nullable private volatile GetRecipesService mRecipesService;
+    private final Gson mGson = JsonUtils.getGson();
+
+    // Only replaced from the main thread, read by refreshes and syncs to compare against
+    @Nullable private volatile Recipe[] mRecipes;
+    // Only touched from the main thread
+    private boolean mDiskLoaded;
+    private boolean mDiskLoading;
+    // Screens currently showing recipes, removed again when they go away
+    private final List<RecipesCallback> mCallbacks = new ArrayList<>();
+    private boolean mRefreshing;
+    // Set when a caller arrives after the refresh in flight was cancelled
+    private boolean mRefreshAgain;
+
+    // Shared with the network thread so the call can be cancelled from the main thread
+    @Nullable private volatile Call<Recipe[]> mRefreshCall;
+    private volatile boolean mRefreshCancelled;
+    private final Map<Integer, Recipe> mRecipesById = new HashMap<>();
+
+    public interface RecipesCallback {
+        /* Called with the cached catalog first and again whenever a refresh changes it, with
+         * what changed since the catalog the changes follow */
+        void onRecipesLoaded(Recipe[] recipes, ChangeSet changes);
+        /* Called only when there is no catalog to show at all */
+        void onRecipesUnavailable(Throwable t);
+    }
+
+    @VisibleForTesting
+    RecipeRepository(File catalogFile, GetRecipesService recipesService, AppExecutors executors){
+        mCatalogFile = catalogFile;
+        mLegacyCatalogFile = new File(catalogFile.getParentFile(), LEGACY_CATALOG_FILE_NAME);
+        mOpenedRecipeFile = new File(catalogFile.getParentFile(), OPENED_RECIPE_FILE_NAME);
+        mValidatorFile = CatalogValidator.fileFor(catalogFile);
+        mRecipesService = recipesService;
+        mExecutors = executors;
+        mAppContext = null;
+    }
+
+    private RecipeRepository(Context appContext, AppExecutors executors){
+        mCatalogFile = new File(appContext.getFilesDir(), CATALOG_FILE_NAME);
+        mLegacyCatalogFile = new File(appContext.getFilesDir(), LEGACY_CATALOG_FILE_NAME);
+        mOpenedRecipeFile = new File(appContext.getFilesDir(), OPENED_RECIPE_FILE_NAME);
+        mValidatorFile = CatalogValidator.fileFor(mCatalogFile);
+        mExecutors = executors;
+        mAppContext = appContext;
+    }
+
+    public static RecipeRepository getInstance(Context context){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null){
+                    sInstance = new RecipeRepository(context.getApplicationContext(), AppExecutors.getInstance());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* Delivers the local catalog right away if there is one, then refreshes it in the background.
+     * The callback keeps receiving changes until it is removed with removeCallback. */
+    public void loadRecipes(@NonNull final RecipesCallback callback){
+        if (!mCallbacks.contains(callback)) mCallbacks.add(callback);
+
+        Recipe[] recipes = mRecipes;
+        if (recipes != null){
+            callback.onRecipesLoaded(recipes, ChangeSet.everything(recipes));
+            refresh();
+            return;
+        }
+
+        if (mDiskLoaded){
+            refresh();
+            return;
+        }
+
+        loadFromDisk();
+    }
+
+    /* Stops deliveries to a screen that is going away, the last one out cancels the refresh */
+    public void removeCallback(@NonNull RecipesCallback callback){
+        if (!mCallbacks.remove(callback) || !mCallbacks.isEmpty() || !mRefreshing) return;
+
+        mRefreshCancelled = true;
+        Call<Recipe[]> call = mRefreshCall;
+        if (call != null) call.cancel();
+        Timber.d("Cancelled recipe refresh, nobody is waiting for it");
+    }
+
+    /* Reads the saved catalog once, callers arriving while the read runs share its result */
+    private void loadFromDisk(){
+        if (mDiskLoading) return;
+        mDiskLoading = true;
+
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                TraceCompat.beginSection("RecipeRepository.loadFromDisk");
+                final Recipe[] recipes;
+                try {
+                    recipes = readSavedCatalog();
+                } finally {
+                    TraceCompat.endSection();
+                }
+                mExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskLoaded = true;
+                        mDiskLoading = false;
+                        // A lookup by id may have read the catalog in the meantime
+                        if (recipes != null && mRecipes == null){
+                            setCatalog(recipes);
+                            Timber.d("Loaded %s recipes from disk", recipes.length);
+                        }
+                        if (mRecipes != null) deliverLoaded(ChangeSet.everything(mRecipes));
+                        refresh();
+                    }
+                });
+            }
+        });
+    }
+
+    /* The catalog currently held in memory, if any, without triggering a refresh */
+    @Nullable
+    public Recipe[] getCachedRecipes(){
+        return mRecipes;
+    }
+
+    /* Looks a recipe up by id so screens only need to pass ids around. Right after process
+     * death only that recipe's record is decoded from the saved binary catalog, or from the recipe
+     * last opened from the list, which is the only time this touches disk. A catalog still saved
+     * as json is left for loadRecipes to convert off the main thread. */
+    @Nullable
+    public Recipe getRecipe(int id){
+        Recipe remembered = mRecipesById.get(id);
+        if (remembered != null) return remembered;
+        if (mRecipes == null && !mDiskLoaded){
+            remembered = readSavedRecipe(id);
+            if (remembered != null){
+                mRecipesById.put(id, remembered);
+                Timber.d("Read recipe %s from disk for lookup", id);
+                return remembered;
+            }
+        }
+        return readOpenedRecipe(id);
+    }
+
+    /* Decodes one recipe from the saved catalog, leaving the catalog held in memory alone so any
+     * background thread may call it. Null when nothing is saved or the catalog lacks the recipe. */
+    @WorkerThread
+    @Nullable
+    public Recipe readSavedRecipe(int id){
+        BinaryCatalog catalog = openCatalog();
+        if (catalog == null) return null;
+        try {
+            int position = catalog.indexOf(id);
+            return position < 0 ? null : catalog.readRecipe(position);
+        } catch (RuntimeException e){
+            Timber.e(e, "Unable to read saved recipe %s", id);
+            return null;
+        }
+    }
+
+    /* Keeps a recipe opened from a page of the list, so it can be looked up without the full
+     * catalog, also after process death */
+    public void rememberRecipe(final Recipe recipe){
+        mRecipesById.put(recipe.getId(), recipe);
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BinaryCatalog.encode(new Recipe[]{recipe}).writeTo(mOpenedRecipeFile);
+                } catch (IOException e){
+                    Timber.e(e, "Unable to save opened recipe %s", recipe.getId());
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private Recipe readOpenedRecipe(int id){
+        try {
+            BinaryCatalog opened = BinaryCatalog.open(mOpenedRecipeFile);
+            if (opened == null || opened.size() == 0 || opened.getId(0) != id) return null;
+            Recipe recipe = opened.readRecipe(0);
+            mRecipesById.put(id, recipe);
+            Timber.d("Read opened recipe %s from disk for lookup", id);
+            return recipe;
+        } catch (IOException | RuntimeException e){
+            Timber.e(e, "Discarding unreadable opened recipe");
+            mOpenedRecipeFile.delete();
+            return null;
+        }
+    }
+
+    private void setCatalog(Recipe[] recipes){
+        mRecipes = recipes;
+        mRecipesById.clear();
+        for (Recipe recipe : recipes) mRecipesById.put(recipe.getId(), recipe);
+    }
+
+    /* Only the changed recipes are looked up again when the changes follow the catalog held */
+    private void applyChanges(ChangeSet changes){
+        Recipe[] recipes = changes.getRecipes();
+        if (!changes.follows(mRecipes)){
+            setCatalog(recipes);
+            return;
+        }
+        mRecipes = recipes;
+        for (int id : changes.getRemoved()) mRecipesById.remove(id);
+        for (int position : changes.getAdded()) mRecipesById.put(recipes[position].getId(), recipes[position]);
+        for (int position : changes.getUpdated()) mRecipesById.put(recipes[position].getId(), recipes[position]);
+    }
+
+    /* Fetches the catalog from the network, persisting and delivering it only when it changed.
+     * Callers arriving while a refresh runs join it instead of starting another. */
+    private void refresh(){
+        if (mRefreshing){
+            if (mRefreshCancelled) mRefreshAgain = true;
+            Timber.d("Joining the recipe refresh in flight");
+            return;
+        }
+        mRefreshing = true;
+        mRefreshCancelled = false;
+
+        // With a catalog on hand a 304 for the saved one skips parsing entirely
+        final Recipe[] previous = mRecipes;
+        mExecutors.networkIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    GetRecipesService service = getService();
+                    CatalogValidator saved = previous != null ? readValidator() : null;
+                    Call<Recipe[]> call = saved != null
+                            ? service.getRecipesIfChanged(saved.getETag(), saved.getLastModified()) : service.getRecipes();
+                    mRefreshCall = call;
+                    // The last caller may have left before the call existed
+                    if (mRefreshCancelled) call.cancel();
+
+                    // Once answered the catalog is applied and saved even if nobody waits for it any more
+                    Response<Recipe[]> response = call.execute();
+                    if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        Timber.d("Recipe catalog not modified");
+                        finishRefresh(null, null, null, null);
+                        return;
+                    }
+                    if (!response.isSuccessful() || response.body() == null)
+                        throw new IOException("Unexpected response " + response.code());
+
+                    Recipe[] recipes = response.body();
+                    BinaryCatalog.Encoded encoded = BinaryCatalog.encode(recipes);
+                    ChangeSet changes = previous == null ? ChangeSet.everything(recipes)
+                            : ChangeSet.compare(CatalogHashes.of(previous), recipes, previous);
+                    finishRefresh(changes, encoded, CatalogValidator.of(response.headers()), null);
+                } catch (final IOException | RuntimeException e){
+                    Timber.d("Recipe refresh failed: %s", e.getMessage());
+                    finishRefresh(null, null, null, e);
+                }
+            }
+        });
+    }
+
+    /* Hands the refresh result to the main thread, starting another refresh if one was asked for
+     * after this one was cancelled before it got an answer. Changes are null when the server said
+     * unchanged or it failed. */
+    private void finishRefresh(@Nullable final ChangeSet changes, @Nullable final BinaryCatalog.Encoded encoded,
+                               @Nullable final CatalogValidator validator, @Nullable final Throwable error){
+        mExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                mRefreshing = false;
+                mRefreshCall = null;
+                boolean again = mRefreshAgain;
+                mRefreshAgain = false;
+                if (again && error != null){
+                    refresh();
+                    return;
+                }
+                if (changes != null) onRefreshed(changes, encoded, validator);
+                else if (error != null && mRecipes == null) deliverUnavailable(error);
+            }
+        });
+    }
+
+    /* Brings the saved catalog up to date from the calling thread, for background sync. Returns
+     * what changed, or null when the saved catalog was already current. Screens holding a catalog
+     * get the changes as well, and the saved pages of the list are replaced. */
+    @WorkerThread
+    @Nullable
+    public ChangeSet syncCatalog() throws IOException {
+        final Recipe[] previous = mRecipes;
+        CatalogHashes old = previous != null ? CatalogHashes.of(previous) : readSavedHashes();
+
+        GetRecipesService service = getService();
+        CatalogValidator saved = old != null ? readValidator() : null;
+        Response<Recipe[]> response = (saved != null
+                ? service.getRecipesIfChanged(saved.getETag(), saved.getLastModified()) : service.getRecipes()).execute();
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) return null;
+        if (!response.isSuccessful() || response.body() == null)
+            throw new IOException("Unexpected response " + response.code());
+
+        final Recipe[] recipes = response.body();
+        BinaryCatalog.Encoded encoded = BinaryCatalog.encode(recipes);
+        ChangeSet changes = old == null ? ChangeSet.everything(recipes) : ChangeSet.compare(old, recipes, previous);
+        CatalogValidator validator = CatalogValidator.of(response.headers());
+        if (changes.isEmpty()){
+            saveValidator(validator);
+            return null;
+        }
+        saveCatalog(encoded, validator);
+        if (mAppContext != null) RecipePager.onCatalogChanged(mAppContext, recipes);
+
+        mExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                // A catalog not read yet is picked up from disk when it is
+                if (!mDiskLoaded) return;
+                Recipe[] current = mRecipes;
+                ChangeSet delivered = current == null ? ChangeSet.everything(recipes)
+                        : ChangeSet.compare(CatalogHashes.of(current), recipes.clone(), current);
+                if (delivered.isEmpty()) return;
+                applyChanges(delivered);
+                deliverLoaded(delivered);
+            }
+        });
+        return changes;
+    }
+
+    /* Only called from background threads, where building retrofit and the http cache is harmless */
+    private GetRecipesService getService(){
+        GetRecipesService service = mRecipesService;
+        if (service == null){
+            service = NetworkUtils.getRetrofitInstance(mAppContext).create(GetRecipesService.class);
+            mRecipesService = service;
+        }
+        return service;
+    }
+
+    private void onRefreshed(ChangeSet changes, final BinaryCatalog.Encoded encoded,
+                             @Nullable final CatalogValidator validator){
+        final Recipe[] current = mRecipes;
+        // A background sync may have replaced the catalog while this refresh ran
+        if (current != null && !changes.follows(current))
+            changes = ChangeSet.compare(CatalogHashes.of(current), changes.getRecipes().clone(), current);
+        if (changes.isEmpty()){
+            Timber.d("Recipe catalog unchanged");
+            // The saved catalog matches the response, so the next refresh can send its validators
+            mExecutors.diskIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    saveValidator(validator);
+                }
+            });
+            return;
+        }
+        Timber.d("Recipe catalog changed, %s", changes);
+        applyChanges(changes);
+        deliverLoaded(changes);
+
+        final Recipe[] recipes = changes.getRecipes();
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                saveCatalog(encoded, validator);
+                // Saved pages of the list were cut from the catalog this one replaced
+                if (mAppContext != null) RecipePager.onCatalogChanged(mAppContext, recipes);
+            }
+        });
+    }
+
+    /* Callbacks may remove themselves while being called, so a copy is walked */
+    private void deliverLoaded(ChangeSet changes){
+        Recipe[] recipes = mRecipes;
+        for (RecipesCallback callback : new ArrayList<>(mCallbacks)) callback.onRecipesLoaded(recipes, changes);
+    }
+
+    private void deliverUnavailable(Throwable t){
+        for (RecipesCallback callback : new ArrayList<>(mCallbacks)) callback.onRecipesUnavailable(t);
+    }
+
+    /* The saved catalog with the hash of every recipe, null when nothing usable is saved */
+    @Nullable
+    private Recipe[] readSavedCatalog(){
+        BinaryCatalog catalog = openCatalog();
+        if (catalog == null) return migrateLegacyCatalog();
+        try {
+            return catalog.readAll();
+        } catch (RuntimeException e){
+            Timber.e(e, "Discarding corrupt recipe catalog");
+            discardCatalog();
+            return null;
+        }
+    }
+
+    /* Hashes of the saved catalog, read from its table without decoding any recipe */
+    @Nullable
+    private CatalogHashes readSavedHashes(){
+        BinaryCatalog catalog = openCatalog();
+        if (catalog != null) return catalog.getHashes();
+        Recipe[] recipes = migrateLegacyCatalog();
+        return recipes == null ? null : CatalogHashes.of(recipes);
+    }
+
+    @Nullable
+    private BinaryCatalog openCatalog(){
+        try {
+            return BinaryCatalog.open(mCatalogFile);
+        } catch (IOException | RuntimeException e){
+            Timber.e(e, "Discarding corrupt recipe catalog");
+            discardCatalog();
+            return null;
+        }
+    }
+
+    private void discardCatalog(){
+        mValidatorFile.delete();
+        mCatalogFile.delete();
+    }
+
+    /* Validators of the saved catalog, null when it has none or nothing is saved */
+    @Nullable
+    private CatalogValidator readValidator(){
+        if (!mCatalogFile.exists()) return null;
+        try {
+            return CatalogValidator.read(mValidatorFile);
+        } catch (IOException e){
+            Timber.e(e, "Unable to read recipe catalog validators");
+            return null;
+        }
+    }
+
+    /* Converts a catalog saved as json by earlier versions, then removes it and its hashes */
+    @Nullable
+    private synchronized Recipe[] migrateLegacyCatalog(){
+        if (!mLegacyCatalogFile.exists()) return null;
+        String json = readLegacyCatalog();
+        Recipe[] recipes = json == null ? null : parse(json);
+        if (recipes != null){
+            BinaryCatalog.Encoded encoded = BinaryCatalog.encode(recipes);
+            // A catalog saved since by a refresh or sync is newer than the json one
+            if (!mCatalogFile.exists()) saveCatalog(encoded, null);
+            Timber.d("Converted %s saved recipes to the binary catalog", recipes.length);
+        }
+        mLegacyCatalogFile.delete();
+        new File(mLegacyCatalogFile.getPath() + LEGACY_HASHES_SUFFIX).delete();
+        return recipes;
+    }
+
+    @Nullable
+    private String readLegacyCatalog(){
+        StringBuilder builder = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new FileInputStream(mLegacyCatalogFile), UTF_8)){
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) builder.append(buffer, 0, read);
+            return builder.toString();
+        } catch (IOException e){
+            Timber.e(e, "Unable to read recipe catalog");
+            return null;
+        }
+    }
+
+    /* Refreshes and background syncs write from different threads, so only one writes at a time.
+     * The catalog is written to a temporary file first and mapped catalogs keep reading the file
+     * they mapped, so replacing it never disturbs recipes still decoding their steps. The old
+     * validators go first and the new ones last, so a catalog is never revalidated with validators
+     * of a response it was not built from. */
+    private synchronized void saveCatalog(BinaryCatalog.Encoded encoded, @Nullable CatalogValidator validator){
+        mValidatorFile.delete();
+        try {
+            encoded.writeTo(mCatalogFile);
+            if (validator != null) validator.writeTo(mValidatorFile);
+        } catch (IOException e){
+            Timber.e(e, "Unable to write recipe catalog");
+        }
+    }
+
+    /* For a response that matched the saved catalog, which keeps that catalog revalidating */
+    private synchronized void saveValidator(@Nullable CatalogValidator validator){
+        if (validator == null || !mCatalogFile.exists()) return;
+        try {
+            validator.writeTo(mValidatorFile);
+        } catch (IOException e){
+            Timber.e(e, "Unable to write recipe catalog validators");
+        }
+    }
+
+    @Nullable
+    private Recipe[] parse(String json){
+        try {
+            return mGson.fromJson(json, Recipe[].class);
+        } catch (RuntimeException e){
+            Timber.e(e, "Discarding corrupt recipe catalog");
+            return null;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.example.android.baking.data;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import androidx.core.util.ObjectsCompat;
+
 public class Step implements Parcelable {
 
     private int id;
@@ -11,6 +13,10 @@ public class Step implements Parcelable {
     private String videoURL;
     private String thumbnailURL;
 
+    // Steps read from the binary catalog decode their description on first access
+    private transient volatile BinaryCatalog descriptionSource;
+    private transient int descriptionOffset;
+
     // Empty constructor
     public Step(){}
 
@@ -26,10 +32,23 @@ public class Step implements Parcelable {
     }
     public void setShortDescription(String shortDescription) { this.shortDescription = shortDescription; }
     public String getDescription() {
+        BinaryCatalog source = descriptionSource;
+        if (source != null){
+            description = source.readString(descriptionOffset);
+            // Written after the description so a thread seeing no source also sees the description
+            descriptionSource = null;
+        }
         return description;
     }
     public void setDescription(String description) {
         this.description = description;
+        descriptionSource = null;
+    }
+
+    /* The description stays in the catalog until it is asked for */
+    void setLazyDescription(BinaryCatalog source, int offset){
+        descriptionOffset = offset;
+        descriptionSource = source;
     }
     public String getThumbnailURL() {
         return thumbnailURL;
@@ -44,6 +63,27 @@ public class Step implements Parcelable {
         this.videoURL = videoURL;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Step)) return false;
+        Step step = (Step) o;
+        if (id != step.id
+                || !ObjectsCompat.equals(shortDescription, step.shortDescription)
+                || !ObjectsCompat.equals(videoURL, step.videoURL)
+                || !ObjectsCompat.equals(thumbnailURL, step.thumbnailURL)) return false;
+        // Descriptions still at the same place in the same catalog are equal without decoding them
+        BinaryCatalog source = descriptionSource;
+        if (source != null && source == step.descriptionSource && descriptionOffset == step.descriptionOffset) return true;
+        return ObjectsCompat.equals(getDescription(), step.getDescription());
+    }
+
+    /* Leaves the description out so hashing never decodes it */
+    @Override
+    public int hashCode() {
+        return ObjectsCompat.hash(id, shortDescription, videoURL, thumbnailURL);
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -53,7 +93,7 @@ public class Step implements Parcelable {
     public void writeToParcel(Parcel parcel, int i) {
         parcel.writeInt(id);
         parcel.writeString(shortDescription);
-        parcel.writeString(description);
+        parcel.writeString(getDescription());
         parcel.writeString(videoURL);
         parcel.writeString(thumbnailURL);
     }
@@ -0,0 +1,126 @@
+package com.example.android.baking.data;
+
+/* When and under which conditions the catalog is synced in the background. Time comes from a
+ * clock so the decisions can be checked without waiting. */
+public class SyncPolicy {
+
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private final long mIntervalMillis;
+    private final long mInitialBackoffMillis;
+    private final int mMaxAttempts;
+    private final boolean mUnmeteredOnly;
+    private final boolean mChargingOnly;
+    private final boolean mIdleOnly;
+    private final Clock mClock;
+
+    private SyncPolicy(Builder builder){
+        mIntervalMillis = builder.mIntervalMillis;
+        mInitialBackoffMillis = builder.mInitialBackoffMillis;
+        mMaxAttempts = builder.mMaxAttempts;
+        mUnmeteredOnly = builder.mUnmeteredOnly;
+        mChargingOnly = builder.mChargingOnly;
+        mIdleOnly = builder.mIdleOnly;
+        mClock = builder.mClock;
+    }
+
+    public long now(){
+        return mClock.currentTimeMillis();
+    }
+
+    /* Periodic runs may come early or twice after a reschedule, a sync within the last half
+     * interval is still fresh enough to skip */
+    public boolean isDue(long lastSyncMillis){
+        long age = now() - lastSyncMillis;
+        return lastSyncMillis <= 0 || age < 0 || age >= mIntervalMillis / 2;
+    }
+
+    /* Attempts count from zero, after the last one the sync waits for the next period */
+    public boolean shouldRetry(int attempt){
+        return attempt + 1 < mMaxAttempts;
+    }
+
+    public long getIntervalMillis(){
+        return mIntervalMillis;
+    }
+
+    /* Doubled after every failed attempt by the scheduler */
+    public long getInitialBackoffMillis(){
+        return mInitialBackoffMillis;
+    }
+
+    public boolean isUnmeteredOnly(){
+        return mUnmeteredOnly;
+    }
+
+    public boolean isChargingOnly(){
+        return mChargingOnly;
+    }
+
+    public boolean isIdleOnly(){
+        return mIdleOnly;
+    }
+
+    /* Identifies the scheduling settings, so a change can replace work scheduled with old ones */
+    public String getScheduleKey(){
+        return mIntervalMillis + ":" + mInitialBackoffMillis + ":" + mUnmeteredOnly + ":" + mChargingOnly + ":" + mIdleOnly;
+    }
+
+    public static class Builder {
+        private long mIntervalMillis = 6 * 60 * 60 * 1000L;
+        private long mInitialBackoffMillis = 30 * 1000L;
+        private int mMaxAttempts = 5;
+        private boolean mUnmeteredOnly = true;
+        private boolean mChargingOnly;
+        private boolean mIdleOnly;
+        private Clock mClock = SYSTEM_CLOCK;
+
+        public Builder setIntervalMillis(long intervalMillis){
+            mIntervalMillis = intervalMillis;
+            return this;
+        }
+
+        public Builder setInitialBackoffMillis(long initialBackoffMillis){
+            mInitialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        public Builder setMaxAttempts(int maxAttempts){
+            mMaxAttempts = Math.max(maxAttempts, 1);
+            return this;
+        }
+
+        public Builder setUnmeteredOnly(boolean unmeteredOnly){
+            mUnmeteredOnly = unmeteredOnly;
+            return this;
+        }
+
+        public Builder setChargingOnly(boolean chargingOnly){
+            mChargingOnly = chargingOnly;
+            return this;
+        }
+
+        public Builder setIdleOnly(boolean idleOnly){
+            mIdleOnly = idleOnly;
+            return this;
+        }
+
+        public Builder setClock(Clock clock){
+            mClock = clock;
+            return this;
+        }
+
+        public SyncPolicy build(){
+            return new SyncPolicy(this);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.android.baking.fragments;
 
 import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
@@ -13,40 +17,52 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.test.espresso.IdlingResource;
 
+import com.example.android.baking.PantryActivity;
 import com.example.android.baking.R;
-import com.example.android.baking.RecipeActivity;
+import com.example.android.baking.ShoppingListActivity;
 import com.example.android.baking.adapters.RecipeAdapter;
+import com.example.android.baking.data.ChangeSet;
 import com.example.android.baking.data.Recipe;
-import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.data.RecipePager;
+import com.example.android.baking.data.RecipeRepository;
+import com.example.android.baking.search.RecipeSearchIndex;
+import com.example.android.baking.search.TextNormalizer;
 import com.example.android.baking.test.SimpleIdlingResource;
-import com.example.android.baking.utils.NetworkUtils;
-
-import java.util.ArrayList;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.ImageUtils;
+import com.example.android.baking.utils.StartupTrace;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import timber.log.Timber;
 
-public class SelectRecipeFragment extends Fragment implements RecipeAdapter.RecipeAdapterOnClickHandler {
+public class SelectRecipeFragment extends Fragment implements RecipeAdapter.RecipeAdapterOnClickHandler,
+        RecipeRepository.RecipesCallback, RecipePager.Listener {
 
     @BindView(R.id.recipe_recyclerview) RecyclerView mRecipeRecyclerView;
     @BindView(R.id.select_recipe_progress_bar) ProgressBar mProgressBar;
     @BindView(R.id.recipe_error_container) LinearLayout mErrorLayout;
     @BindView(R.id.retrofit_error_retry_button) ImageButton mRetryButton;
     @BindView(R.id.retrofit_error_message) TextView mErrorMessage;
+    // The full catalog, only loaded once a search needs it
     private Recipe[] mRecipes;
+    private boolean mCatalogRequested;
+    private RecipePager mPager;
     private RecipeAdapter mRecipeAdapter;
     private OnRecipeClickListener mCallback;
 
+    // The current search, an empty query shows the whole catalog
+    private String mQuery = "";
+    // Lets the latest query win over slower ones still running
+    private int mSearchGeneration;
+
     private final static int NUMBER_COLUMNS = 3;
 
     @Nullable
@@ -76,6 +92,12 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
         }
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setHasOptionsMenu(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -90,7 +112,13 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
             @Override
             public void onClick(View view) {
                 showLoading();
-                getRecipes();
+                if (mIdlingResource!=null) mIdlingResource.setIdleState(false);
+                if (!mQuery.isEmpty()) getRecipes();
+                else {
+                    mPager.start();
+                    // Nothing new arrives when the first page is already held
+                    if (mPager.getCount() > 0) showLoadedList();
+                }
             }
         });
 
@@ -101,20 +129,10 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
 
-        /* Restore instance state */
+        /* Restore instance state, the recipes stay in the repository rather than the bundle */
         if (savedInstanceState!=null){
-            /* Retrieve recipes ONLY if they are in the bundle! */
-            ArrayList<Recipe> recipeList = savedInstanceState.getParcelableArrayList(RecipeActivity.RECIPE_KEY);
-            if (recipeList !=null) {
-                mRecipes = new Recipe[recipeList.size()];
-                for (int i = 0; i < recipeList.size(); i++) {
-                    mRecipes[i] = recipeList.get(i);
-                }
-            }
-            /* Debugging */
+            mRecipes = RecipeRepository.getInstance(requireContext()).getCachedRecipes();
             Timber.d("attempting to recover recipes: mRecipes is null == %s", mRecipes == null);
-            try {Timber.d("mRecipes length is %s", mRecipes.length);}
-            catch (Exception e) { Timber.e(e); }
         }
 
         /* Set the recycler view*/
@@ -130,6 +148,8 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
         }
 
         mRecipeRecyclerView.setHasFixedSize(true);
+        mRecipeRecyclerView.addOnScrollListener(
+                ImageUtils.pauseOnFling(requireContext(), RecipeAdapter.IMAGE_TAG));
 
         // Create the adapter
         mRecipeAdapter = new RecipeAdapter(this, getContext());
@@ -137,47 +157,178 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
         // Set the adapter on the recycler view
         mRecipeRecyclerView.setAdapter(mRecipeAdapter);
 
-        // Async call to get recipe data if the recipes haven't already been saved
-        if (mRecipes == null) {
-            getRecipes();
-            Timber.d("querying recipes from server");
-        }
-        // Otherwise set it from saved data
-        else {
-            mRecipeAdapter.setmRecipeData(mRecipes);
+        // Browsing pages through the catalog, pages already held survive a rotation. Only this
+        // screen starts the pager, so widget updates and background syncs never fetch pages.
+        mPager = RecipePager.getInstance(requireContext());
+        mPager.setListener(this);
+        mRecipeAdapter.setPager(mPager);
+        if (mPager.getCount() > 0) {
             showRecipes();
-            Timber.d("setting recipes from saved instance state");
+            if (getActivity() != null) StartupTrace.onFirstRecipesShown(getActivity());
+            Timber.d("showing %s recipes already paged in", mPager.getCount());
+        } else {
+            if (mIdlingResource!=null) mIdlingResource.setIdleState(false);
+            mPager.start();
+            Timber.d("loading the first page of recipes");
         }
+
+        if (mRecipes != null) indexRecipes(mRecipes, null);
     }
 
-    /* Async retrofit call gets the recipes as a json object and turns them into relevant objects */
-    private void getRecipes(){
-        GetRecipesService recipesService = NetworkUtils.getRetrofitInstance().create(GetRecipesService.class);
-        Call<Recipe[]> call = recipesService.getRecipes();
-        call.enqueue(new Callback<Recipe[]>() {
-            /* Success hides irrelevant views, sets the adapter data, and logs */
+    @Override
+    public void onDestroyView() {
+        if (mPager != null) mPager.setListener(null);
+        // Stops catalog deliveries to a dead view, and the refresh if nothing else is waiting on it
+        RecipeRepository.getInstance(getContext()).removeCallback(this);
+        mCatalogRequested = false;
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+        inflater.inflate(R.menu.recipe_menu, menu);
+        SearchView searchView = (SearchView) menu.findItem(R.id.recipe_search).getActionView();
+        searchView.setQueryHint(getString(R.string.search_recipes));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
-            public void onResponse(Call<Recipe[]> call, Response<Recipe[]> response) {
-                mRecipes = response.body();
-                mRecipeAdapter.setmRecipeData(mRecipes);
-                showRecipes();
-                Timber.d("Retrofit success, Recipe[] length is %s.", response.body().length);
-
-                // Set idling resource for testing
-                if (mIdlingResource!=null) mIdlingResource.setIdleState(true);
+            public boolean onQueryTextSubmit(String query) {
+                search(query);
+                return false;
             }
-            /* Failure shows the error message and logs */
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.pantry){
+            startActivity(new Intent(getActivity(), PantryActivity.class));
+            return true;
+        }
+        if (item.getItemId() == R.id.shopping_list){
+            startActivity(new Intent(getActivity(), ShoppingListActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /* Brings the search index up to date off the main thread, then reruns any active search.
+     * With changes only the recipes they name are indexed again. Updates run on a pool, so each
+     * is numbered here and the index drops one that lands after a newer catalog. */
+    private void indexRecipes(final Recipe[] recipes, @Nullable final ChangeSet changes){
+        final AppExecutors executors = AppExecutors.getInstance();
+        final int generation = RecipeSearchIndex.getInstance().nextGeneration();
+        executors.computation().execute(new Runnable() {
             @Override
-            public void onFailure(Call<Recipe[]> call, Throwable t) {
-                mErrorMessage.setText(t.getMessage());
-                showError();
-                Timber.d("Retrofit failure, message is: %s.", t.getMessage());
+            public void run() {
+                if (!RecipeSearchIndex.getInstance().update(generation, recipes, changes)) return;
+                executors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isAdded() && !mQuery.isEmpty()) search(mQuery);
+                    }
+                });
+            }
+        });
+    }
+
+    /* Runs the query against the index in the background and shows the ranked matches */
+    private void search(final String query){
+        mQuery = query;
+        final int generation = ++mSearchGeneration;
+        if (TextNormalizer.tokenize(query).isEmpty()){
+            mRecipeAdapter.setPager(mPager);
+            if (mPager.getCount() > 0) showLoadedList();
+            return;
+        }
+        // The index is filled once the catalog arrives, which then reruns the search
+        if (mRecipes == null && !mCatalogRequested) getRecipes();
 
-                if (mIdlingResource!=null) mIdlingResource.setIdleState(true);
+        final AppExecutors executors = AppExecutors.getInstance();
+        executors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                final Recipe[] results = RecipeSearchIndex.getInstance().search(query);
+                Timber.d("Search for \"%s\" matched %s recipes in %.2f ms", query,
+                        results == null ? 0 : results.length, (System.nanoTime() - start) / 1e6);
+                executors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSearchGeneration || !isAdded()) return;
+                        mRecipeAdapter.setmRecipeData(results);
+                        // Until the catalog arrives the index is empty, the search runs again once it is indexed
+                        if (mRecipes != null) showLoadedList();
+                    }
+                });
             }
         });
     }
 
+    /* Gets the full catalog for searching, the saved catalog arrives first and a refresh follows */
+    private void getRecipes(){
+        mCatalogRequested = true;
+        RecipeRepository.getInstance(getContext()).loadRecipes(this);
+    }
+
+    /* The catalog only feeds the search index, browsing goes through the pager */
+    @Override
+    public void onRecipesLoaded(Recipe[] recipes, ChangeSet changes) {
+        mRecipes = recipes;
+        // While searching the results are refreshed once the index has the new catalog
+        indexRecipes(recipes, changes);
+        Timber.d("Recipes loaded, Recipe[] length is %s.", recipes.length);
+    }
+
+    /* Only happens when there is nothing saved to search */
+    @Override
+    public void onRecipesUnavailable(Throwable t) {
+        mCatalogRequested = false;
+        if (mQuery.isEmpty()) return;
+        showErrorMessage(t);
+        if (mIdlingResource!=null) mIdlingResource.setIdleState(true);
+    }
+
+    /* The first page arriving hides irrelevant views and logs */
+    @Override
+    public void onItemsInserted(int positionStart, int itemCount) {
+        if (mRecipeAdapter.isPaging()) mRecipeAdapter.notifyItemRangeInserted(positionStart, itemCount);
+        if (positionStart != 0) return;
+
+        showLoadedList();
+        if (getActivity() != null) StartupTrace.onFirstRecipesShown(getActivity());
+        Timber.d("First page of %s recipes shown", itemCount);
+    }
+
+    @Override
+    public void onItemsChanged(int positionStart, int itemCount) {
+        if (mRecipeAdapter.isPaging()) mRecipeAdapter.notifyItemRangeChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(int positionStart, int itemCount) {
+        if (mRecipeAdapter.isPaging()) mRecipeAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    /* Only happens when there is nothing saved to show */
+    @Override
+    public void onFirstPageUnavailable(Throwable t) {
+        showErrorMessage(t);
+        if (mIdlingResource!=null) mIdlingResource.setIdleState(true);
+    }
+
+    /* Failure shows the error message and logs */
+    private void showErrorMessage(Throwable t){
+        mErrorMessage.setText(t.getMessage());
+        showError();
+        Timber.d("Recipes unavailable, message is: %s.", t.getMessage());
+    }
+
     /* sends the selected recipe to main activity */
     @Override
     public void onClick(Recipe clickedRecipe) {
@@ -192,6 +343,13 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
         mErrorLayout.setVisibility(View.INVISIBLE);
     }
 
+    /* Shows the recipes once something arrived to fill them, and lets tests go on */
+    private void showLoadedList(){
+        showRecipes();
+        // Set idling resource for testing
+        if (mIdlingResource!=null) mIdlingResource.setIdleState(true);
+    }
+
     /* Shows the error view */
     private void showError(){
         mProgressBar.setVisibility(View.INVISIBLE);
@@ -204,18 +362,4 @@ public class SelectRecipeFragment extends Fragment implements RecipeAdapter.Reci
         mRecipeRecyclerView.setVisibility(View.INVISIBLE);
         mErrorLayout.setVisibility(View.INVISIBLE);
     }
-
-    @Override
-    public void onSaveInstanceState(@NonNull Bundle outState) {
-        super.onSaveInstanceState(outState);
-
-        /* Save the recipes on rotation only if the async call was successful! */
-        if (mRecipes!=null) {
-            ArrayList<Recipe> recipeList = new ArrayList<>();
-            for (int i = 0; i < mRecipes.length; i++) {
-                recipeList.add(mRecipes[i]);
-            }
-            outState.putParcelableArrayList(RecipeActivity.RECIPE_KEY, recipeList);
-        }
-    }
 }
@@ -18,6 +18,7 @@ import com.example.android.baking.RecipeActivity;
 import com.example.android.baking.adapters.IngredientAdapter;
 import com.example.android.baking.adapters.StepAdapter;
 import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -61,9 +62,10 @@ public class SelectStepFragment extends Fragment implements StepAdapter.StepOnCl
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
 
-        // Restore the recipe on rotate
-        if (savedInstanceState!= null){
-            mRecipe = savedInstanceState.getParcelable(RecipeActivity.RECIPE_KEY);
+        // Restore the recipe on rotate, only its id is kept in the bundle
+        if (savedInstanceState!= null && mRecipe == null){
+            mRecipe = RecipeRepository.getInstance(requireContext())
+                    .getRecipe(savedInstanceState.getInt(RecipeActivity.RECIPE_ID_KEY));
         }
         /* Set the data for the steps */
         // Create and set layout manager
@@ -112,6 +114,6 @@ public class SelectStepFragment extends Fragment implements StepAdapter.StepOnCl
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putParcelable(RecipeActivity.RECIPE_KEY, mRecipe);
+        if (mRecipe != null) outState.putInt(RecipeActivity.RECIPE_ID_KEY, mRecipe.getId());
     }
 }
@@ -17,20 +17,20 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import com.example.android.baking.R;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
 import com.example.android.baking.data.Step;
-import com.google.android.exoplayer2.ExoPlayer;
-import com.google.android.exoplayer2.ExoPlayerFactory;
-import com.google.android.exoplayer2.source.ExtractorMediaSource;
-import com.google.android.exoplayer2.source.MediaSource;
+import com.example.android.baking.player.PlayerHolder;
+import com.example.android.baking.utils.ImageUtils;
+import com.example.android.baking.utils.PrecomputedTextCache;
+import com.example.android.baking.utils.VideoFrameRequestHandler;
+import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.ui.AspectRatioFrameLayout;
 import com.google.android.exoplayer2.ui.PlayerView;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.video.VideoListener;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import com.squareup.picasso.Picasso;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -49,9 +49,18 @@ public class ViewStepFragment extends Fragment {
 
     private Step mStep;
     private Step[] mSteps;
+    private int mRecipeId;
     private int mStepPosition;
 
-    private ExoPlayer mExoPlayer;
+    private SimpleExoPlayer mExoPlayer;
+
+    // Hides the poster once the video has a frame of its own to show
+    private final VideoListener mFirstFrameListener = new VideoListener() {
+        @Override
+        public void onRenderedFirstFrame() {
+            mExoOverlay.setVisibility(View.INVISIBLE);
+        }
+    };
 
     private long mPlaybackPosition;
     private boolean mPlayWhenReady;
@@ -61,16 +70,33 @@ public class ViewStepFragment extends Fragment {
     private static final String KEY_PLAY_WHEN_READY = "play_when_ready";
     private static final String KEY_CURRENT_WINDOW = "current_window";
     private static final String KEY_STEP_POSITION = "step_position";
-    private static final String KEY_STEPS = "steps";
+    private static final String KEY_RECIPE_ID = "recipe_id";
 
     private boolean navHidden;
 
+    private PrecomputedTextCache mInstructionTextCache;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_view_step, container, false);
         ButterKnife.bind(this, view);
 
+        // Instructions are measured in the background so step changes only attach the layout
+        mInstructionTextCache = new PrecomputedTextCache(mInstructionTextView);
+
+        // Adaptive videos are limited to what the player can show at its current size
+        mMediaPlayerView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                int width = right - left;
+                int height = bottom - top;
+                if (width > 0 && height > 0 && (width != oldRight - oldLeft || height != oldBottom - oldTop))
+                    PlayerHolder.setViewportSize(view.getContext(), width, height);
+            }
+        });
+
         // For portrait and video landscape
         navHidden = false;
 
@@ -86,9 +112,10 @@ public class ViewStepFragment extends Fragment {
             mPlayWhenReady = savedInstanceState.getBoolean(KEY_PLAY_WHEN_READY);
             mStepPosition = savedInstanceState.getInt(KEY_STEP_POSITION);
 
-            // Recover the steps
-            List<Step> stepList = savedInstanceState.getParcelableArrayList(KEY_STEPS);
-            mSteps = stepList.toArray(new Step[stepList.size()]);
+            // Recover the steps through the recipe id, the steps themselves are not parceled
+            mRecipeId = savedInstanceState.getInt(KEY_RECIPE_ID);
+            Recipe recipe = RecipeRepository.getInstance(requireContext()).getRecipe(mRecipeId);
+            if (recipe != null) mSteps = recipe.getSteps();
 
             // Set the current step
             mStep = mSteps[mStepPosition];
@@ -159,104 +186,99 @@ public class ViewStepFragment extends Fragment {
     @Override
     public void onStart() {
         super.onStart();
-        if (Util.SDK_INT>23) initializePlayer(); // Handling API level 24 multi-window support
+        if (Util.SDK_INT>23) attachPlayer(); // Handling API level 24 multi-window support
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        if (Util.SDK_INT<=23 || mExoPlayer==null) initializePlayer(); // Handling API level 24 multi-window support
+        if (Util.SDK_INT<=23 || mExoPlayer==null) attachPlayer(); // Handling API level 24 multi-window support
         updateUI();
     }
 
     @Override
     public void onPause() {
         super.onPause();
-        if (Util.SDK_INT<=23) releasePlayer(); // Handling API level 24 multi-window support
+        if (Util.SDK_INT<=23) detachPlayer(); // Handling API level 24 multi-window support
     }
 
     @Override
     public void onStop() {
         super.onStop();
-        if (Util.SDK_INT>23) releasePlayer(); // Handling API level 24 multi-window support
+        if (Util.SDK_INT>23) detachPlayer(); // Handling API level 24 multi-window support
     }
 
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
+        if (mExoPlayer!=null) savePlaybackState();
         outState.putInt(KEY_CURRENT_WINDOW, mCurrentWindow);
         outState.putLong(KEY_PLAYBACK_POSITION, mPlaybackPosition);
         outState.putBoolean(KEY_PLAY_WHEN_READY, mPlayWhenReady);
         outState.putInt(KEY_STEP_POSITION, mStepPosition);
-
-        ArrayList<Step> stepsList = new ArrayList<>(Arrays.asList(mSteps));
-        outState.putParcelableArrayList(KEY_STEPS, stepsList);
+        outState.putInt(KEY_RECIPE_ID, mRecipeId);
     }
 
-    private void initializePlayer(){
+    /* Attaches the shared player, which keeps its buffer across rotation and navigation */
+    private void attachPlayer(){
         if (mExoPlayer == null){
-            mExoPlayer = ExoPlayerFactory.newSimpleInstance(getContext());
-
+            mExoPlayer = PlayerHolder.getPlayer(requireContext());
             mMediaPlayerView.setPlayer(mExoPlayer);
+            mExoPlayer.addVideoListener(mFirstFrameListener);
             mExoPlayer.setPlayWhenReady(mPlayWhenReady);
-            mExoPlayer.seekTo(mCurrentWindow, mPlaybackPosition);
         }
-
     }
 
-    private void releasePlayer(){
+    /* Detaches the view from the shared player without releasing it */
+    private void detachPlayer(){
         if (mExoPlayer!=null){
-            mPlaybackPosition = mExoPlayer.getCurrentPosition();
-            mCurrentWindow = mExoPlayer.getCurrentWindowIndex();
-            mPlayWhenReady = mExoPlayer.getPlayWhenReady();
-            mExoPlayer.release();
+            savePlaybackState();
+            // Keep playing through a rotation, otherwise hold the buffer paused until the step is shown again
+            if (getActivity()==null || !getActivity().isChangingConfigurations())
+                mExoPlayer.setPlayWhenReady(false);
+            mExoPlayer.removeVideoListener(mFirstFrameListener);
+            mMediaPlayerView.setPlayer(null);
             mExoPlayer = null;
         }
     }
 
+    private void savePlaybackState(){
+        mPlaybackPosition = mExoPlayer.getCurrentPosition();
+        mCurrentWindow = mExoPlayer.getCurrentWindowIndex();
+        mPlayWhenReady = mExoPlayer.getPlayWhenReady();
+    }
+
     private void updatePlayer(){
         if (mExoPlayer!=null) {
-            // Get the relevant urls
+            // Get the relevant urls, a thumbnail url is only played when it points at a video
             String URL = mStep.getVideoURL();
             String thumbnail = mStep.getThumbnailURL();
-
-            // Stop player and reset positioning
-            mExoPlayer.stop();
-            mCurrentWindow = 0;
-            mPlaybackPosition = 0;
-
-            // If there is a video url display it
-            if (!URL.equals("")) {
-                MediaSource mediaSource = buildMediaSource(Uri.parse(URL));
-                mExoPlayer.prepare(mediaSource, true, false);
-                showPlayer();
+            String mediaUrl = !URL.equals("") ? URL
+                    : VideoFrameRequestHandler.isVideoUrl(thumbnail) ? thumbnail : "";
+
+            // If there is a media url display it, the step already loaded keeps its buffer
+            if (!mediaUrl.equals("")) {
+                boolean prepared = PlayerHolder.prepare(requireContext(), Uri.parse(mediaUrl));
+                if (prepared) mExoPlayer.seekTo(mCurrentWindow, mPlaybackPosition);
+                // A freshly prepared video shows its poster until the first frame renders
+                showPlayer(prepared ? ImageUtils.getPosterUrl(mStep) : null);
             }
-            // If there is a thumbnail url display it
-            else if (!thumbnail.equals("")){
-                MediaSource mediaSource = buildMediaSource(Uri.parse(thumbnail));
-                mExoPlayer.prepare(mediaSource, true, false);
-                showPlayer();
-            }
-            // Otherwise indicate that there is neither
+            // Otherwise show the thumbnail image as a still, or indicate that there is neither
             else {
-                showPlaceholder();
+                PlayerHolder.stop();
+                showPlaceholder(ImageUtils.getPosterUrl(mStep));
             }
         }
     }
 
-    /* Builds a media source from a uri for exoplayer*/
-    private MediaSource buildMediaSource(Uri uri){
-        return new ExtractorMediaSource.Factory(
-                new DefaultHttpDataSourceFactory("exoplayer-codelab"))
-                .createMediaSource(uri);
-    }
-
-    /* Sets the steps for the fragment */
-    public void setSteps(Step[] steps){
-        mSteps = steps; }
+    /* Sets the recipe whose steps the fragment shows */
+    public void setRecipe(Recipe recipe){
+        mRecipeId = recipe.getId();
+        mSteps = recipe.getSteps(); }
 
     /* Sets the current step position */
     public void setStepPosition(int position){
+        if (position != mStepPosition) resetPlaybackPosition();
         mStepPosition = position;
         mStep = mSteps[mStepPosition]; }
 
@@ -265,6 +287,7 @@ public class ViewStepFragment extends Fragment {
         // Increment only if below last step
         if (mStepPosition < mSteps.length-1){
             mStepPosition++;
+            resetPlaybackPosition();
             mStep = mSteps[mStepPosition];
             updateUI();
         }
@@ -275,19 +298,35 @@ public class ViewStepFragment extends Fragment {
         // Step is greater than zero so decrement it
         if (mStepPosition > 0){
             mStepPosition--;
+            resetPlaybackPosition();
             mStep = mSteps[mStepPosition];
             updateUI();
         }
     }
 
+    /* A new step starts playing from the beginning */
+    private void resetPlaybackPosition(){
+        mCurrentWindow = 0;
+        mPlaybackPosition = 0;
+    }
+
     /* Sets the instructions, triggers nav control and updates player */
     public void updateUI(){
         // Set the description and update the player
-        mInstructionTextView.setText(mStep.getDescription());
+        mInstructionTextCache.setText(mInstructionTextView, mStep.getDescription());
+        prefetchNeighbourInstructions();
         updateNavButtons();
         updatePlayer();
     }
 
+    /* Measures the instructions of the steps either side of the current one */
+    private void prefetchNeighbourInstructions(){
+        if (mStepPosition > 0)
+            mInstructionTextCache.prefetch(mSteps[mStepPosition - 1].getDescription());
+        if (mStepPosition < mSteps.length - 1)
+            mInstructionTextCache.prefetch(mSteps[mStepPosition + 1].getDescription());
+    }
+
     /* Handles the nav buttons depending upon orientation */
     private void updateNavButtons(){
         // only handle if flagged
@@ -301,13 +340,37 @@ public class ViewStepFragment extends Fragment {
         }
     }
 
-    private void showPlayer(){
+    private void showPlayer(@Nullable String posterUrl){
         mMediaPlayerView.setVisibility(View.VISIBLE);
-        mExoOverlay.setVisibility(View.INVISIBLE);
+        Picasso picasso = ImageUtils.getPicasso(requireContext());
+        picasso.cancelRequest(mExoOverlay);
+        if (posterUrl == null){
+            mExoOverlay.setVisibility(View.INVISIBLE);
+        } else {
+            mExoOverlay.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            mExoOverlay.setVisibility(View.VISIBLE);
+            picasso.load(posterUrl)
+                    .fit()
+                    .centerCrop()
+                    .into(mExoOverlay);
+        }
     }
 
-    private void showPlaceholder(){
+    private void showPlaceholder(@Nullable String posterUrl){
         mMediaPlayerView.setVisibility(View.INVISIBLE);
+        Picasso picasso = ImageUtils.getPicasso(requireContext());
+        picasso.cancelRequest(mExoOverlay);
         mExoOverlay.setVisibility(View.VISIBLE);
+        if (posterUrl == null){
+            mExoOverlay.setScaleType(ImageView.ScaleType.CENTER);
+            mExoOverlay.setImageResource(R.drawable.icons8_confectionery_48);
+        } else {
+            mExoOverlay.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            picasso.load(posterUrl)
+                    .fit()
+                    .centerCrop()
+                    .placeholder(R.drawable.icons8_confectionery_48)
+                    .into(mExoOverlay);
+        }
     }
 }
@@ -0,0 +1,54 @@
+package com.example.android.baking.json;
+
+import com.example.android.baking.data.Ingredient;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/* Streams an Ingredient without reflection, field order matches the reflective output */
+public class IngredientTypeAdapter extends TypeAdapter<Ingredient> {
+
+    static final String QUANTITY = "quantity";
+    static final String MEASURE = "measure";
+    static final String INGREDIENT = "ingredient";
+
+    @Override
+    public void write(JsonWriter out, Ingredient ingredient) throws IOException {
+        out.beginObject();
+        out.name(QUANTITY).value(ingredient.getQuantity());
+        out.name(MEASURE).value(ingredient.getMeasure());
+        out.name(INGREDIENT).value(ingredient.getIngredient());
+        out.endObject();
+    }
+
+    @Override
+    public Ingredient read(JsonReader in) throws IOException {
+        Ingredient ingredient = new Ingredient();
+        in.beginObject();
+        while (in.hasNext()){
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                continue;
+            }
+            switch (name){
+                case QUANTITY:
+                    ingredient.setQuantity(in.nextDouble());
+                    break;
+                case MEASURE:
+                    ingredient.setMeasure(in.nextString());
+                    break;
+                case INGREDIENT:
+                    ingredient.setIngredient(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return ingredient;
+    }
+}
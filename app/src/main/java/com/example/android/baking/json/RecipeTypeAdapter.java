@@ -0,0 +1,134 @@
+package com.example.android.baking.json;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.Step;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Streams a Recipe and its nested arrays without reflection, field order matches the reflective output */
+public class RecipeTypeAdapter extends TypeAdapter<Recipe> {
+
+    static final String ID = "id";
+    static final String NAME = "name";
+    static final String INGREDIENTS = "ingredients";
+    static final String STEPS = "steps";
+    static final String SERVINGS = "servings";
+    static final String IMAGE = "image";
+
+    private static final Ingredient[] NO_INGREDIENTS = new Ingredient[0];
+    private static final Step[] NO_STEPS = new Step[0];
+
+    private final IngredientTypeAdapter mIngredientAdapter;
+    private final StepTypeAdapter mStepAdapter;
+
+    public RecipeTypeAdapter(IngredientTypeAdapter ingredientAdapter, StepTypeAdapter stepAdapter){
+        mIngredientAdapter = ingredientAdapter;
+        mStepAdapter = stepAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Recipe recipe) throws IOException {
+        out.beginObject();
+        out.name(ID).value(recipe.getId());
+        out.name(NAME).value(recipe.getName());
+        Ingredient[] ingredients = recipe.getIngredients();
+        if (ingredients != null){
+            out.name(INGREDIENTS).beginArray();
+            for (Ingredient ingredient : ingredients) writeIngredient(out, ingredient);
+            out.endArray();
+        }
+        Step[] steps = recipe.getSteps();
+        if (steps != null){
+            out.name(STEPS).beginArray();
+            for (Step step : steps) writeStep(out, step);
+            out.endArray();
+        }
+        out.name(SERVINGS).value(recipe.getServings());
+        out.name(IMAGE).value(recipe.getImage());
+        out.endObject();
+    }
+
+    @Override
+    public Recipe read(JsonReader in) throws IOException {
+        Recipe recipe = new Recipe();
+        in.beginObject();
+        while (in.hasNext()){
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                continue;
+            }
+            switch (name){
+                case ID:
+                    recipe.setId(in.nextInt());
+                    break;
+                case NAME:
+                    recipe.setName(in.nextString());
+                    break;
+                case INGREDIENTS:
+                    recipe.setIngredients(readIngredients(in));
+                    break;
+                case STEPS:
+                    recipe.setSteps(readSteps(in));
+                    break;
+                case SERVINGS:
+                    recipe.setServings(in.nextInt());
+                    break;
+                case IMAGE:
+                    recipe.setImage(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return recipe;
+    }
+
+    private Ingredient[] readIngredients(JsonReader in) throws IOException {
+        List<Ingredient> ingredients = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()){
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                ingredients.add(null);
+            } else {
+                ingredients.add(mIngredientAdapter.read(in));
+            }
+        }
+        in.endArray();
+        return ingredients.toArray(NO_INGREDIENTS);
+    }
+
+    private Step[] readSteps(JsonReader in) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()){
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                steps.add(null);
+            } else {
+                steps.add(mStepAdapter.read(in));
+            }
+        }
+        in.endArray();
+        return steps.toArray(NO_STEPS);
+    }
+
+    private void writeIngredient(JsonWriter out, Ingredient ingredient) throws IOException {
+        if (ingredient == null) out.nullValue();
+        else mIngredientAdapter.write(out, ingredient);
+    }
+
+    private void writeStep(JsonWriter out, Step step) throws IOException {
+        if (step == null) out.nullValue();
+        else mStepAdapter.write(out, step);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.android.baking.json;
+
+import com.example.android.baking.data.Step;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/* Streams a Step without reflection, field order matches the reflective output */
+public class StepTypeAdapter extends TypeAdapter<Step> {
+
+    static final String ID = "id";
+    static final String SHORT_DESCRIPTION = "shortDescription";
+    static final String DESCRIPTION = "description";
+    static final String VIDEO_URL = "videoURL";
+    static final String THUMBNAIL_URL = "thumbnailURL";
+
+    @Override
+    public void write(JsonWriter out, Step step) throws IOException {
+        out.beginObject();
+        out.name(ID).value(step.getId());
+        out.name(SHORT_DESCRIPTION).value(step.getShortDescription());
+        out.name(DESCRIPTION).value(step.getDescription());
+        out.name(VIDEO_URL).value(step.getVideoURL());
+        out.name(THUMBNAIL_URL).value(step.getThumbnailURL());
+        out.endObject();
+    }
+
+    @Override
+    public Step read(JsonReader in) throws IOException {
+        Step step = new Step();
+        in.beginObject();
+        while (in.hasNext()){
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                continue;
+            }
+            switch (name){
+                case ID:
+                    step.setId(in.nextInt());
+                    break;
+                case SHORT_DESCRIPTION:
+                    step.setShortDescription(in.nextString());
+                    break;
+                case DESCRIPTION:
+                    step.setDescription(in.nextString());
+                    break;
+                case VIDEO_URL:
+                    step.setVideoURL(in.nextString());
+                    break;
+                case THUMBNAIL_URL:
+                    step.setThumbnailURL(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return step;
+    }
+}
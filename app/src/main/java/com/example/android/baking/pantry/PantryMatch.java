@@ -0,0 +1,40 @@
+package com.example.android.baking.pantry;
+
+import com.example.android.baking.data.Recipe;
+
+import java.util.List;
+
+/* How well a pantry covers one recipe */
+public class PantryMatch {
+
+    private final Recipe mRecipe;
+    private final int mCovered;
+    private final int mTotal;
+    private final List<String> mMissing;
+
+    PantryMatch(Recipe recipe, int covered, int total, List<String> missing){
+        mRecipe = recipe;
+        mCovered = covered;
+        mTotal = total;
+        mMissing = missing;
+    }
+
+    public Recipe getRecipe(){
+        return mRecipe;
+    }
+
+    /* Distinct ingredients the pantry has */
+    public int getCovered(){
+        return mCovered;
+    }
+
+    /* Distinct ingredients the recipe needs */
+    public int getTotal(){
+        return mTotal;
+    }
+
+    /* Normalized names of the ingredients still needed */
+    public List<String> getMissing(){
+        return mMissing;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.android.baking.pantry;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.search.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Ranks recipes by how much of their ingredient list a pantry covers. Every distinct ingredient
+ * name gets a small integer id, a pantry is a bitset over those ids and each recipe keeps only
+ * the non zero 64 bit words of its own bitset, so a query is one AND and popcount per word.
+ * Immutable once built, rebuild it when the catalog changes. */
+public class PantryMatcher {
+
+    private static final int BITS_PER_WORD = 64;
+    // Coverage is ranked as a fixed point fraction so the ranking key stays a primitive
+    private static final long COVERAGE_SCALE = 1 << 16;
+    private static final int MAX_RANKED_MISSING = 0xFFFF;
+    private static final int MAX_RANKED_RECIPES = 0xFFFFFF;
+
+    private final Recipe[] mRecipes;
+    // Id to normalized name and to its words, the most common ingredients have the lowest ids
+    private final String[] mNames;
+    private final String[][] mNameWords;
+    private final Map<String, Integer> mIds = new HashMap<>();
+
+    // Recipe r owns entries mRecipeWordStart[r] until mRecipeWordStart[r + 1]
+    private final int[] mRecipeWordStart;
+    private final int[] mWordIndex;
+    private final long[] mWordBits;
+    private final int[] mTotals;
+    private final int mPantryWords;
+
+    public PantryMatcher(Recipe[] recipes){
+        mRecipes = recipes;
+        int[][] recipeIds = new int[recipes.length][];
+
+        // Numbering by frequency packs the common ingredients into the first few words
+        final Map<String, Integer> counts = new HashMap<>();
+        String[][] recipeNames = new String[recipes.length][];
+        for (int r = 0; r < recipes.length; r++){
+            recipeNames[r] = distinctNames(recipes[r]);
+            for (String name : recipeNames[r]){
+                Integer count = counts.get(name);
+                counts.put(name, count == null ? 1 : count + 1);
+            }
+        }
+        mNames = counts.keySet().toArray(new String[0]);
+        Arrays.sort(mNames, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int byCount = counts.get(b) - counts.get(a);
+                return byCount != 0 ? byCount : a.compareTo(b);
+            }
+        });
+        mNameWords = new String[mNames.length][];
+        for (int id = 0; id < mNames.length; id++){
+            mIds.put(mNames[id], id);
+            mNameWords[id] = mNames[id].split(" ");
+        }
+        mPantryWords = (mNames.length + BITS_PER_WORD - 1) / BITS_PER_WORD;
+
+        int entries = 0;
+        for (int r = 0; r < recipes.length; r++){
+            int[] ids = new int[recipeNames[r].length];
+            for (int i = 0; i < ids.length; i++) ids[i] = mIds.get(recipeNames[r][i]);
+            Arrays.sort(ids);
+            recipeIds[r] = ids;
+            entries += countWords(ids);
+        }
+
+        mRecipeWordStart = new int[recipes.length + 1];
+        mWordIndex = new int[entries];
+        mWordBits = new long[entries];
+        mTotals = new int[recipes.length];
+        int entry = 0;
+        for (int r = 0; r < recipes.length; r++){
+            mRecipeWordStart[r] = entry;
+            mTotals[r] = recipeIds[r].length;
+            for (int id : recipeIds[r]){
+                int word = id / BITS_PER_WORD;
+                if (entry == mRecipeWordStart[r] || mWordIndex[entry - 1] != word){
+                    mWordIndex[entry] = word;
+                    entry++;
+                }
+                mWordBits[entry - 1] |= 1L << (id % BITS_PER_WORD);
+            }
+        }
+        mRecipeWordStart[recipes.length] = entry;
+    }
+
+    /* A pantry bitset. An item covers every ingredient whose name contains all of its words,
+     * so "butter" covers "unsalted butter" but "unsalted butter" does not cover "butter". */
+    public long[] pantryOf(Collection<String> items){
+        long[] pantry = new long[mPantryWords];
+        for (String item : items){
+            List<String> words = TextNormalizer.tokenize(item);
+            if (words.isEmpty()) continue;
+            for (int id = 0; id < mNames.length; id++){
+                if (containsAll(mNameWords[id], words)) pantry[id / BITS_PER_WORD] |= 1L << (id % BITS_PER_WORD);
+            }
+        }
+        return pantry;
+    }
+
+    /* Recipes sharing at least one ingredient with the pantry, best covered first, at most limit of them */
+    public List<PantryMatch> match(long[] pantry, int limit){
+        long[] ranked = new long[mRecipes.length];
+        int candidates = 0;
+        for (int r = 0; r < mRecipes.length && r <= MAX_RANKED_RECIPES; r++){
+            int covered = 0;
+            for (int e = mRecipeWordStart[r]; e < mRecipeWordStart[r + 1]; e++){
+                covered += Long.bitCount(mWordBits[e] & pantry[mWordIndex[e]]);
+            }
+            if (covered == 0) continue;
+            int missing = Math.min(mTotals[r] - covered, MAX_RANKED_MISSING);
+            // Higher coverage first, then fewer missing, then catalog order
+            long coverage = covered * COVERAGE_SCALE / mTotals[r];
+            ranked[candidates++] = (coverage << 40)
+                    | ((long) (MAX_RANKED_MISSING - missing) << 24)
+                    | (MAX_RANKED_RECIPES - r);
+        }
+        Arrays.sort(ranked, 0, candidates);
+
+        int count = Math.min(limit, candidates);
+        List<PantryMatch> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            int r = MAX_RANKED_RECIPES - (int) (ranked[candidates - 1 - i] & MAX_RANKED_RECIPES);
+            matches.add(buildMatch(r, pantry));
+        }
+        return matches;
+    }
+
+    /* Only the returned matches pay for turning missing bits back into names */
+    private PantryMatch buildMatch(int r, long[] pantry){
+        List<String> missing = new ArrayList<>();
+        for (int e = mRecipeWordStart[r]; e < mRecipeWordStart[r + 1]; e++){
+            long bits = mWordBits[e] & ~pantry[mWordIndex[e]];
+            while (bits != 0){
+                int bit = Long.numberOfTrailingZeros(bits);
+                missing.add(mNames[mWordIndex[e] * BITS_PER_WORD + bit]);
+                bits &= bits - 1;
+            }
+        }
+        return new PantryMatch(mRecipes[r], mTotals[r] - missing.size(), mTotals[r], missing);
+    }
+
+    private static String[] distinctNames(Recipe recipe){
+        Ingredient[] ingredients = recipe.getIngredients();
+        if (ingredients == null) return new String[0];
+        List<String> names = new ArrayList<>(ingredients.length);
+        for (Ingredient ingredient : ingredients){
+            String name = TextNormalizer.normalizeWords(ingredient.getIngredient());
+            if (!name.isEmpty() && !names.contains(name)) names.add(name);
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static int countWords(int[] sortedIds){
+        int words = 0;
+        int lastWord = -1;
+        for (int id : sortedIds){
+            int word = id / BITS_PER_WORD;
+            if (word != lastWord) words++;
+            lastWord = word;
+        }
+        return words;
+    }
+
+    private static boolean containsAll(String[] nameWords, List<String> words){
+        for (String word : words){
+            boolean found = false;
+            for (String nameWord : nameWords){
+                if (nameWord.equals(word)){
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.baking.player;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.util.Util;
+
+import timber.log.Timber;
+
+/* The bandwidth meter the player hands to every stream it loads. Its estimate is saved per
+ * network type, so the first video of a session starts at a quality the connection has carried
+ * before instead of the library's guess for the country. */
+public class BandwidthEstimates {
+
+    private static final String PREFS_NAME = "bandwidth";
+    private static final String KEY_BITRATE_PREFIX = "bitrate_";
+
+    // Estimates within this fraction of the saved one are not written again
+    private static final double MIN_CHANGE = 0.1;
+
+    private static final int[] NETWORK_TYPES = {
+            C.NETWORK_TYPE_WIFI, C.NETWORK_TYPE_ETHERNET, C.NETWORK_TYPE_4G, C.NETWORK_TYPE_3G,
+            C.NETWORK_TYPE_2G, C.NETWORK_TYPE_CELLULAR_UNKNOWN, C.NETWORK_TYPE_OTHER};
+
+    private static DefaultBandwidthMeter bandwidthMeter;
+
+    /* Creates the meter on first use, starting from the estimates saved in earlier sessions */
+    public static synchronized DefaultBandwidthMeter getBandwidthMeter(Context context){
+        if (bandwidthMeter==null){
+            final Context appContext = context.getApplicationContext();
+            final SharedPreferences prefs = getPreferences(appContext);
+
+            DefaultBandwidthMeter.Builder builder = new DefaultBandwidthMeter.Builder(appContext);
+            for (int networkType : NETWORK_TYPES){
+                long saved = prefs.getLong(key(networkType), 0);
+                if (saved > 0) builder.setInitialBitrateEstimate(networkType, saved);
+            }
+            bandwidthMeter = builder.build();
+
+            bandwidthMeter.addEventListener(new Handler(Looper.getMainLooper()), new BandwidthMeter.EventListener() {
+                @Override
+                public void onBandwidthSample(int elapsedMs, long bytes, long bitrate) {
+                    save(prefs, Util.getNetworkType(appContext), bitrate);
+                }
+            });
+            Timber.d("Bandwidth estimate starts at %s bps", bandwidthMeter.getBitrateEstimate());
+        }
+        return bandwidthMeter;
+    }
+
+    /* Seeds the estimate a new meter starts from, for tests with a known connection */
+    @VisibleForTesting
+    public static synchronized void setSavedEstimate(Context context, int networkType, long bitrate){
+        getPreferences(context).edit().putLong(key(networkType), bitrate).commit();
+        bandwidthMeter = null;
+    }
+
+    private static void save(SharedPreferences prefs, int networkType, long bitrate){
+        if (bitrate <= 0 || networkType == C.NETWORK_TYPE_OFFLINE || networkType == C.NETWORK_TYPE_UNKNOWN) return;
+        long saved = prefs.getLong(key(networkType), 0);
+        if (saved > 0 && Math.abs(bitrate - saved) < saved * MIN_CHANGE) return;
+        prefs.edit().putLong(key(networkType), bitrate).apply();
+    }
+
+    private static String key(int networkType){
+        return KEY_BITRATE_PREFIX + networkType;
+    }
+
+    private static SharedPreferences getPreferences(Context context){
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.baking.player;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.example.android.baking.R;
+import com.example.android.baking.utils.MediaCacheUtils;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.DefaultRenderersFactory;
+import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.source.ExtractorMediaSource;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.dash.DashMediaSource;
+import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
+import com.google.android.exoplayer2.source.hls.HlsMediaSource;
+import com.google.android.exoplayer2.trackselection.AdaptiveTrackSelection;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.Util;
+
+import timber.log.Timber;
+
+/* Keeps a single player alive outside of any fragment so rotation and back stack
+ * navigation reattach the same decoders and buffer instead of building a new player.
+ * HLS and DASH step videos switch renditions as the measured bandwidth changes, and can be
+ * kept to the smallest rendition that still fills the player view. */
+public class PlayerHolder {
+
+    private static SimpleExoPlayer player;
+    private static DefaultTrackSelector trackSelector;
+    // Size of the player view, kept so a new player starts with the same limit
+    private static int viewportWidth = Integer.MAX_VALUE;
+    private static int viewportHeight = Integer.MAX_VALUE;
+    @Nullable private static Uri mediaUri;
+
+    /* Returns the shared player, creating it on first use */
+    public static synchronized SimpleExoPlayer getPlayer(Context context){
+        if (player==null){
+            Context appContext = context.getApplicationContext();
+            trackSelector = new DefaultTrackSelector(new AdaptiveTrackSelection.Factory());
+            applyViewportSize(appContext);
+            player = ExoPlayerFactory.newSimpleInstance(appContext,
+                    new DefaultRenderersFactory(appContext),
+                    trackSelector,
+                    new DefaultLoadControl(),
+                    null,
+                    BandwidthEstimates.getBandwidthMeter(appContext));
+            Timber.d("Created shared player");
+        }
+        return player;
+    }
+
+    /* Limits adaptive streams to renditions no bigger than needed to fill a view of this size,
+     * unless R.bool.cap_video_to_player_size turns the limit off */
+    public static synchronized void setViewportSize(Context context, int width, int height){
+        viewportWidth = width;
+        viewportHeight = height;
+        if (trackSelector!=null) applyViewportSize(context);
+    }
+
+    private static void applyViewportSize(Context context){
+        if (!context.getResources().getBoolean(R.bool.cap_video_to_player_size)) return;
+        trackSelector.setParameters(trackSelector.buildUponParameters()
+                .setViewportSize(viewportWidth, viewportHeight, false));
+        Timber.d("Video limited to a %sx%s player", viewportWidth, viewportHeight);
+    }
+
+    /* Prepares the uri unless it is already loaded, returns true if the player was prepared fresh */
+    public static synchronized boolean prepare(Context context, Uri uri){
+        if (uri.equals(mediaUri)) return false;
+        mediaUri = uri;
+        getPlayer(context).prepare(buildMediaSource(context, uri), true, true);
+        return true;
+    }
+
+    /* Drops the current media but keeps the player for the next step */
+    public static synchronized void stop(){
+        if (player!=null) player.stop(true);
+        mediaUri = null;
+    }
+
+    /* Releases the decoders, only called once nothing can show the player any more */
+    public static synchronized void release(){
+        if (player!=null){
+            player.release();
+            player = null;
+            trackSelector = null;
+            mediaUri = null;
+            Timber.d("Released shared player");
+        }
+    }
+
+    /* Builds a media source from a uri for exoplayer, reading through the shared media cache.
+     * Manifests and playlists are recognised by their extension, anything else plays as a file. */
+    private static MediaSource buildMediaSource(Context context, Uri uri){
+        DataSource.Factory dataSourceFactory = MediaCacheUtils.getDataSourceFactory(context);
+        switch (Util.inferContentType(uri)){
+            case C.TYPE_DASH:
+                return new DashMediaSource.Factory(
+                        new DefaultDashChunkSource.Factory(dataSourceFactory), dataSourceFactory)
+                        .createMediaSource(uri);
+            case C.TYPE_HLS:
+                return new HlsMediaSource.Factory(dataSourceFactory)
+                        .createMediaSource(uri);
+            default:
+                return new ExtractorMediaSource.Factory(dataSourceFactory)
+                        .createMediaSource(uri);
+        }
+    }
+}
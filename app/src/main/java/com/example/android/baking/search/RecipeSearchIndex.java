@@ -0,0 +1,311 @@
+package com.example.android.baking.search;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.Step;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/* Inverted index over recipe names, ingredient names and step descriptions. Every word points at
+ * the recipes containing it, so a query only touches the recipes that match one of its words.
+ * All query words must match, the last one as a prefix so results follow typing. Methods are
+ * synchronized and meant to be called off the main thread. */
+public class RecipeSearchIndex {
+
+    // How much a word counts depending on where it was found
+    @VisibleForTesting static final int NAME_WEIGHT = 8;
+    @VisibleForTesting static final int INGREDIENT_WEIGHT = 3;
+    @VisibleForTesting static final int STEP_WEIGHT = 1;
+    // A whole word outranks a word the query is only a prefix of
+    private static final int EXACT_BONUS = 2;
+
+    // Retired slots are only reclaimed by a rebuild, once they outnumber the live ones
+    private static final int MIN_SLOTS_BEFORE_COMPACTING = 1024;
+
+    private static final Object LOCK = new Object();
+    private static RecipeSearchIndex sInstance;
+
+    // Sorted so a prefix is a contiguous range of words
+    private final TreeMap<String, Postings> mTerms = new TreeMap<>();
+    // Indexed recipes by slot, null once a slot is retired
+    private Recipe[] mSlots = new Recipe[64];
+    // Where each slot's recipe sits in the catalog, so ties keep catalog order however old the slot
+    private int[] mPositions = new int[64];
+    private int mSlotCount;
+    private int mLiveCount;
+    private final Map<Integer, Integer> mSlotsById = new HashMap<>();
+    // The catalog array last indexed, change sets following it can be applied as they are
+    @Nullable private Recipe[] mCatalog;
+    // Updates are numbered as catalogs arrive, so one that finishes late cannot undo a newer one
+    private final AtomicInteger mNextGeneration = new AtomicInteger();
+    private int mAppliedGeneration;
+
+    // Per query scratch space, indexed by slot and reused between queries
+    private int[] mScores = new int[0];
+    private int[] mMatchedWords = new int[0];
+    private int[] mTouched = new int[0];
+
+    @VisibleForTesting
+    RecipeSearchIndex(){}
+
+    public static RecipeSearchIndex getInstance(){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null) sInstance = new RecipeSearchIndex();
+            }
+        }
+        return sInstance;
+    }
+
+    /* Numbers an update, taken on the thread catalogs arrive on and in the order they arrive */
+    public int nextGeneration(){
+        return mNextGeneration.incrementAndGet();
+    }
+
+    /* Applies the catalog, or only the recipes the changes name, unless an update numbered later was
+     * already applied. Returns whether it was applied. */
+    public synchronized boolean update(int generation, Recipe[] recipes, @Nullable ChangeSet changes){
+        if (generation < mAppliedGeneration){
+            Timber.d("Dropping search index update %s, %s was applied already", generation, mAppliedGeneration);
+            return false;
+        }
+        mAppliedGeneration = generation;
+        if (changes != null) update(recipes, changes);
+        else update(recipes);
+        return true;
+    }
+
+    /* Brings the index in line with the catalog, only recipes that were added, changed or removed are touched */
+    public synchronized void update(Recipe[] recipes){
+        long start = System.nanoTime();
+        int changed = 0;
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < recipes.length; i++){
+            Recipe recipe = recipes[i];
+            ids.add(recipe.getId());
+            Integer slot = mSlotsById.get(recipe.getId());
+            if (slot != null && recipe.equals(mSlots[slot])){
+                mPositions[slot] = i;
+                continue;
+            }
+            if (slot != null) retire(slot);
+            add(recipe, i);
+            changed++;
+        }
+        for (Integer id : mSlotsById.keySet().toArray(new Integer[0])){
+            if (!ids.contains(id)){
+                retire(mSlotsById.get(id));
+                changed++;
+            }
+        }
+
+        mCatalog = recipes;
+        compactIfSparse();
+        Timber.d("Search index updated %s of %s recipes in %.2f ms", changed, recipes.length,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    /* Applies only what changed when the changes follow the catalog indexed last, otherwise
+     * compares the whole catalog */
+    public synchronized void update(Recipe[] recipes, ChangeSet changes){
+        if (!changes.follows(mCatalog)){
+            update(recipes);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int id : changes.getRemoved()){
+            Integer slot = mSlotsById.get(id);
+            if (slot != null) retire(slot);
+        }
+        for (int position : changes.getUpdated()) replace(recipes[position], position);
+        for (int position : changes.getAdded()) replace(recipes[position], position);
+        // Adding, removing or reordering moves the recipes that did not change too
+        if (changes.getAdded().length > 0 || changes.getRemoved().length > 0 || changes.isReordered())
+            for (int i = 0; i < recipes.length; i++){
+                Integer slot = mSlotsById.get(recipes[i].getId());
+                if (slot != null) mPositions[slot] = i;
+            }
+
+        mCatalog = recipes;
+        compactIfSparse();
+        Timber.d("Search index applied %s changes in %.2f ms", changes.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /* Recipes matching every word of the query, best first, or null for a query without words */
+    @Nullable
+    public synchronized Recipe[] search(String query){
+        List<String> words = TextNormalizer.tokenize(query);
+        if (words.isEmpty()) return null;
+        ensureScratchCapacity();
+
+        int touched = 0;
+        for (int w = 0; w < words.size(); w++){
+            String word = words.get(w);
+            boolean last = w == words.size() - 1;
+            if (last){
+                // Everything from the word up to the last word starting with it
+                SortedMap<String, Postings> range = mTerms.subMap(word, word + Character.MAX_VALUE);
+                for (Map.Entry<String, Postings> entry : range.entrySet()){
+                    int bonus = entry.getKey().length() == word.length() ? EXACT_BONUS : 1;
+                    touched = accumulate(entry.getValue(), w, bonus, touched);
+                }
+            } else {
+                Postings postings = mTerms.get(word);
+                if (postings != null) touched = accumulate(postings, w, EXACT_BONUS, touched);
+            }
+        }
+
+        // Packed as score then reversed catalog position so one primitive sort ranks them, ties keep catalog order
+        long[] ranked = new long[touched];
+        int matches = 0;
+        for (int i = 0; i < touched; i++){
+            int slot = mTouched[i];
+            if (mMatchedWords[slot] == words.size())
+                ranked[matches++] = ((long) mScores[slot] << 32) | (Integer.MAX_VALUE - mPositions[slot]);
+            mScores[slot] = 0;
+            mMatchedWords[slot] = 0;
+        }
+        Arrays.sort(ranked, 0, matches);
+
+        Recipe[] results = new Recipe[matches];
+        for (int i = 0; i < matches; i++){
+            int position = Integer.MAX_VALUE - (int) ranked[matches - 1 - i];
+            results[i] = mCatalog[position];
+        }
+        return results;
+    }
+
+    /* Adds the postings of one word. A recipe only stays a candidate if it matched every earlier word. */
+    private int accumulate(Postings postings, int word, int bonus, int touched){
+        for (int i = 0; i < postings.mSize; i++){
+            int slot = postings.mSlots[i];
+            if (mSlots[slot] == null) continue;
+            int matched = mMatchedWords[slot];
+            if (matched == word){
+                if (word == 0) mTouched[touched++] = slot;
+                mMatchedWords[slot] = word + 1;
+            } else if (matched != word + 1){
+                continue;
+            }
+            mScores[slot] += postings.mWeights[i] * bonus;
+        }
+        return touched;
+    }
+
+    private void add(Recipe recipe, int position){
+        if (mSlotCount == mSlots.length){
+            mSlots = Arrays.copyOf(mSlots, mSlotCount * 2);
+            mPositions = Arrays.copyOf(mPositions, mSlotCount * 2);
+        }
+        int slot = mSlotCount++;
+        mSlots[slot] = recipe;
+        mPositions[slot] = position;
+        mSlotsById.put(recipe.getId(), slot);
+        mLiveCount++;
+
+        // Slots only grow, so every posting list stays sorted by slot
+        addWords(recipe.getName(), slot, NAME_WEIGHT);
+        Ingredient[] ingredients = recipe.getIngredients();
+        if (ingredients != null)
+            for (Ingredient ingredient : ingredients) addWords(ingredient.getIngredient(), slot, INGREDIENT_WEIGHT);
+        Step[] steps = recipe.getSteps();
+        if (steps != null)
+            for (Step step : steps){
+                addWords(step.getShortDescription(), slot, STEP_WEIGHT);
+                addWords(step.getDescription(), slot, STEP_WEIGHT);
+            }
+    }
+
+    private void addWords(@Nullable String text, int slot, int weight){
+        for (String word : TextNormalizer.tokenize(text)){
+            Postings postings = mTerms.get(word);
+            if (postings == null){
+                postings = new Postings();
+                mTerms.put(word, postings);
+            }
+            postings.add(slot, weight);
+        }
+    }
+
+    private void replace(Recipe recipe, int position){
+        Integer slot = mSlotsById.get(recipe.getId());
+        if (slot != null) retire(slot);
+        add(recipe, position);
+    }
+
+    private void compactIfSparse(){
+        if (mSlotCount > MIN_SLOTS_BEFORE_COMPACTING && mSlotCount > 2 * mLiveCount) compact();
+    }
+
+    /* The slot's postings stay behind and are skipped until the next rebuild */
+    private void retire(int slot){
+        mSlotsById.remove(mSlots[slot].getId());
+        mSlots[slot] = null;
+        mLiveCount--;
+    }
+
+    /* Rebuilds from the live recipes so retired slots stop costing memory and query time */
+    private void compact(){
+        Recipe[] live = new Recipe[mLiveCount];
+        int[] positions = new int[mLiveCount];
+        int count = 0;
+        for (int i = 0; i < mSlotCount; i++)
+            if (mSlots[i] != null){
+                live[count] = mSlots[i];
+                positions[count++] = mPositions[i];
+            }
+
+        mTerms.clear();
+        mSlotsById.clear();
+        mSlots = new Recipe[Math.max(64, live.length)];
+        mPositions = new int[mSlots.length];
+        mSlotCount = 0;
+        mLiveCount = 0;
+        for (int i = 0; i < live.length; i++) add(live[i], positions[i]);
+        Timber.d("Search index compacted to %s recipes", mLiveCount);
+    }
+
+    private void ensureScratchCapacity(){
+        if (mScores.length < mSlotCount){
+            mScores = new int[mSlots.length];
+            mMatchedWords = new int[mSlots.length];
+            mTouched = new int[mSlots.length];
+        }
+    }
+
+    /* Slots containing a word and how strongly, one entry per slot */
+    private static class Postings {
+        int[] mSlots = new int[2];
+        int[] mWeights = new int[2];
+        int mSize;
+
+        void add(int slot, int weight){
+            // Repeats within the same recipe add up rather than adding entries
+            if (mSize > 0 && mSlots[mSize - 1] == slot){
+                mWeights[mSize - 1] += weight;
+                return;
+            }
+            if (mSize == mSlots.length){
+                mSlots = Arrays.copyOf(mSlots, mSize * 2);
+                mWeights = Arrays.copyOf(mWeights, mSize * 2);
+            }
+            mSlots[mSize] = slot;
+            mWeights[mSize] = weight;
+            mSize++;
+        }
+    }
+}
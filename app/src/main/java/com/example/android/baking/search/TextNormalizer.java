@@ -0,0 +1,53 @@
+package com.example.android.baking.search;
+
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Folds text to lowercase ascii-ish words so "Crème Brûlée" and "creme brulee" compare equal */
+public class TextNormalizer {
+
+    /* Lowercases and strips accents, everything that is not a letter or digit becomes a space */
+    public static String normalize(@Nullable String text){
+        if (text == null || text.isEmpty()) return "";
+        // Decomposed, accents become separate combining marks that can simply be dropped
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++){
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            builder.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return builder.toString();
+    }
+
+    /* The normalized words of the text, in order */
+    public static List<String> tokenize(@Nullable String text){
+        List<String> tokens = new ArrayList<>();
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++){
+            boolean space = i == normalized.length() || normalized.charAt(i) == ' ';
+            if (space && start >= 0){
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            } else if (!space && start < 0){
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    /* The normalized words joined by single spaces, a key that ignores case, accents and punctuation */
+    public static String normalizeWords(@Nullable String text){
+        List<String> words = tokenize(text);
+        StringBuilder builder = new StringBuilder();
+        for (String word : words){
+            if (builder.length() > 0) builder.append(' ');
+            builder.append(word);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.baking.services;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.android.baking.R;
+import com.example.android.baking.data.CatalogSync;
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.RecipeRepository;
+import com.example.android.baking.data.SyncPolicy;
+import com.example.android.baking.widget.WidgetPinStore;
+import com.example.android.baking.widget.WidgetUpdateScheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/* Keeps the saved catalog, the first page of the list and the recipes pinned to widgets current
+ * in the background, so launches almost never wait on the network */
+public class CatalogSyncWorker extends Worker {
+
+    private static final String WORK_NAME = "catalog_sync";
+    private static final String SYNC_PREFS = "catalog_sync";
+    private static final String KEY_LAST_SYNC = "last_sync";
+    private static final String KEY_SCHEDULE = "schedule";
+    private static final long WIDGET_UPDATE_TIMEOUT_SECONDS = 10;
+
+    public CatalogSyncWorker(@NonNull Context context, @NonNull WorkerParameters params){
+        super(context, params);
+    }
+
+    /* Schedules the periodic sync, work already scheduled with the same settings is kept */
+    public static void schedule(Context context){
+        SyncPolicy policy = getPolicy(context);
+
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiredNetworkType(policy.isUnmeteredOnly() ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresCharging(policy.isChargingOnly());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) constraints.setRequiresDeviceIdle(policy.isIdleOnly());
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(CatalogSyncWorker.class,
+                policy.getIntervalMillis(), TimeUnit.MILLISECONDS)
+                .setConstraints(constraints.build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, policy.getInitialBackoffMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        // Replacing unchanged work on every launch would push its next run back each time
+        SharedPreferences prefs = getPreferences(context);
+        String scheduleKey = policy.getScheduleKey();
+        boolean changed = !scheduleKey.equals(prefs.getString(KEY_SCHEDULE, null));
+        WorkManager.getInstance().enqueueUniquePeriodicWork(WORK_NAME,
+                changed ? ExistingPeriodicWorkPolicy.REPLACE : ExistingPeriodicWorkPolicy.KEEP, request);
+        if (changed) prefs.edit().putString(KEY_SCHEDULE, scheduleKey).apply();
+        Timber.d("Catalog sync scheduled every %s minutes", TimeUnit.MILLISECONDS.toMinutes(policy.getIntervalMillis()));
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        final Context context = getApplicationContext();
+        SyncPolicy policy = getPolicy(context);
+        SharedPreferences prefs = getPreferences(context);
+
+        CatalogSync sync = new CatalogSync(RecipeRepository.getInstance(context), policy, new CatalogSync.Listener() {
+            @Override
+            public void onCatalogChanged(ChangeSet changes) {
+                if (new WidgetPinStore(context).refreshRecipes(changes)) updateWidgets(context);
+            }
+        });
+
+        switch (sync.run(prefs.getLong(KEY_LAST_SYNC, 0), getRunAttemptCount())){
+            case UNCHANGED:
+            case CHANGED:
+                prefs.edit().putLong(KEY_LAST_SYNC, policy.now()).apply();
+                return Result.success();
+            case RETRY:
+                return Result.retry();
+            case FAILED:
+                return Result.failure();
+            default:
+                return Result.success();
+        }
+    }
+
+    /* Redraws the widgets whose recipe changed, waiting for the pass so the process is not let go
+     * before it has run */
+    private static void updateWidgets(Context context){
+        final CountDownLatch drawn = new CountDownLatch(1);
+        WidgetUpdateScheduler.getInstance(context).request(null, new Runnable() {
+            @Override
+            public void run() {
+                drawn.countDown();
+            }
+        });
+        try {
+            drawn.await(WIDGET_UPDATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SyncPolicy getPolicy(Context context){
+        Resources resources = context.getResources();
+        return new SyncPolicy.Builder()
+                .setIntervalMillis(TimeUnit.HOURS.toMillis(resources.getInteger(R.integer.sync_interval_hours)))
+                .setInitialBackoffMillis(TimeUnit.SECONDS.toMillis(resources.getInteger(R.integer.sync_initial_backoff_seconds)))
+                .setMaxAttempts(resources.getInteger(R.integer.sync_max_attempts))
+                .setUnmeteredOnly(resources.getBoolean(R.bool.sync_unmetered_only))
+                .setChargingOnly(resources.getBoolean(R.bool.sync_charging_only))
+                .setIdleOnly(resources.getBoolean(R.bool.sync_idle_only))
+                .build();
+    }
+
+    private static SharedPreferences getPreferences(Context context){
+        return context.getSharedPreferences(SYNC_PREFS, Context.MODE_PRIVATE);
+    }
+}
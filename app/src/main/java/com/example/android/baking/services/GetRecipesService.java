@@ -1,10 +1,14 @@
 package com.example.android.baking.services;
 
+import androidx.annotation.Nullable;
+
 import com.example.android.baking.data.Recipe;
 import com.example.android.baking.utils.NetworkUtils;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Query;
 
 public interface GetRecipesService {
 
@@ -12,4 +16,13 @@ public interface GetRecipesService {
     @GET(NetworkUtils.RECIPES_ENDPOINT)
     Call<Recipe[]> getRecipes();
 
+    /* same resource, asked with the validators of the saved catalog, an unchanged one comes back as an empty 304 */
+    @GET(NetworkUtils.RECIPES_ENDPOINT)
+    Call<Recipe[]> getRecipesIfChanged(@Nullable @Header(NetworkUtils.HEADER_IF_NONE_MATCH) String eTag,
+                                       @Nullable @Header(NetworkUtils.HEADER_IF_MODIFIED_SINCE) String lastModified);
+
+    /* at most limit recipes starting at offset, a short page means the end of the catalog */
+    @GET(NetworkUtils.RECIPES_ENDPOINT)
+    Call<Recipe[]> getRecipePage(@Query(NetworkUtils.QUERY_OFFSET) int offset, @Query(NetworkUtils.QUERY_LIMIT) int limit);
+
 }
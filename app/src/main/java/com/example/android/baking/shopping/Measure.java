@@ -0,0 +1,116 @@
+package com.example.android.baking.shopping;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/* The measures the recipe feed uses, each with its size in the base unit of its dimension
+ * (millilitres, grams or pieces). Conversions and display ladders are fixed tables built once. */
+public enum Measure {
+
+    TSP(Dimension.VOLUME, UnitSystem.US, Measure.TEASPOON_ML),
+    TBLSP(Dimension.VOLUME, UnitSystem.US, 3 * Measure.TEASPOON_ML),
+    CUP(Dimension.VOLUME, UnitSystem.US, 48 * Measure.TEASPOON_ML),
+    ML(Dimension.VOLUME, UnitSystem.METRIC, 1),
+    L(Dimension.VOLUME, UnitSystem.METRIC, 1000),
+    OZ(Dimension.MASS, UnitSystem.US, Measure.OUNCE_G),
+    LB(Dimension.MASS, UnitSystem.US, 16 * Measure.OUNCE_G),
+    G(Dimension.MASS, UnitSystem.METRIC, 1),
+    K(Dimension.MASS, UnitSystem.METRIC, 1000),
+    UNIT(Dimension.COUNT, UnitSystem.METRIC, 1);
+
+    public enum Dimension { VOLUME, MASS, COUNT }
+
+    enum UnitSystem { US, METRIC }
+
+    private static final double TEASPOON_ML = 4.92892159375;
+    private static final double OUNCE_G = 28.349523125;
+
+    // Other spellings seen in recipe data, matched after trimming and upper casing
+    private static final Map<String, Measure> ALIASES = new HashMap<>();
+    static {
+        for (Measure measure : values()) ALIASES.put(measure.name(), measure);
+        ALIASES.put("TEASPOON", TSP);
+        ALIASES.put("TEASPOONS", TSP);
+        ALIASES.put("TBSP", TBLSP);
+        ALIASES.put("TABLESPOON", TBLSP);
+        ALIASES.put("TABLESPOONS", TBLSP);
+        ALIASES.put("CUPS", CUP);
+        ALIASES.put("KG", K);
+        ALIASES.put("GRAM", G);
+        ALIASES.put("GRAMS", G);
+        ALIASES.put("LBS", LB);
+        ALIASES.put("UNITS", UNIT);
+    }
+
+    // Largest first, with the smallest amount each one is used for. The last step takes everything left.
+    private static final Measure[][] LADDERS = new Measure[Dimension.values().length * UnitSystem.values().length][];
+    private static final double[][] LADDER_MINIMUMS = new double[LADDERS.length][];
+    static {
+        ladder(Dimension.VOLUME, UnitSystem.US, new Measure[]{CUP, TBLSP, TSP}, new double[]{0.25, 1, 0});
+        ladder(Dimension.VOLUME, UnitSystem.METRIC, new Measure[]{L, ML}, new double[]{1, 0});
+        ladder(Dimension.MASS, UnitSystem.US, new Measure[]{LB, OZ}, new double[]{1, 0});
+        ladder(Dimension.MASS, UnitSystem.METRIC, new Measure[]{K, G}, new double[]{1, 0});
+        ladder(Dimension.COUNT, UnitSystem.METRIC, new Measure[]{UNIT}, new double[]{0});
+        ladder(Dimension.COUNT, UnitSystem.US, new Measure[]{UNIT}, new double[]{0});
+    }
+
+    private final Dimension mDimension;
+    private final UnitSystem mSystem;
+    private final double mBaseUnits;
+
+    Measure(Dimension dimension, UnitSystem system, double baseUnits){
+        mDimension = dimension;
+        mSystem = system;
+        mBaseUnits = baseUnits;
+    }
+
+    /* The known measure for a feed value, null when it is not one we can convert */
+    @Nullable
+    public static Measure parse(@Nullable String measure){
+        if (measure == null) return null;
+        Measure known = ALIASES.get(measure);
+        return known != null ? known : ALIASES.get(measure.trim().toUpperCase(Locale.US));
+    }
+
+    public Dimension getDimension(){
+        return mDimension;
+    }
+
+    UnitSystem getSystem(){
+        return mSystem;
+    }
+
+    /* How many millilitres, grams or pieces one of this measure is */
+    public double toBase(double amount){
+        return amount * mBaseUnits;
+    }
+
+    public double fromBase(double baseAmount){
+        return baseAmount / mBaseUnits;
+    }
+
+    /* The largest measure of this measure's system that shows the amount as at least its minimum,
+     * so 96 teaspoons read as 2 cups and 1.5 teaspoons stay teaspoons */
+    public Measure readableFor(double baseAmount){
+        int ladder = ladderIndex(mDimension, mSystem);
+        Measure[] measures = LADDERS[ladder];
+        double[] minimums = LADDER_MINIMUMS[ladder];
+        for (int i = 0; i < measures.length - 1; i++){
+            if (measures[i].fromBase(baseAmount) >= minimums[i]) return measures[i];
+        }
+        return measures[measures.length - 1];
+    }
+
+    private static void ladder(Dimension dimension, UnitSystem system, Measure[] measures, double[] minimums){
+        int index = ladderIndex(dimension, system);
+        LADDERS[index] = measures;
+        LADDER_MINIMUMS[index] = minimums;
+    }
+
+    private static int ladderIndex(Dimension dimension, UnitSystem system){
+        return dimension.ordinal() * UnitSystem.values().length + system.ordinal();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.android.baking.shopping;
+
+import androidx.annotation.Nullable;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.search.TextNormalizer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Merges the ingredients of several recipes, each scaled to the servings wanted, into one list.
+ * Amounts are summed in millilitres, grams or pieces so "2 TBLSP" and "1 CUP" of the same
+ * ingredient become one line, which is then shown in the most readable measure of the system
+ * it was first seen in. Ingredients that differ only in case, accents or punctuation are merged.
+ * Not thread safe, build one per plan on a background thread. */
+public class ShoppingList {
+
+    private static final int DIMENSIONS = Measure.Dimension.values().length;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Raw feed name to name id, so each distinct spelling is only normalized once
+    private final Map<String, Integer> mRawNameIds = new HashMap<>();
+    private final Map<String, Integer> mNormalizedNameIds = new HashMap<>();
+    // Name id and dimension to line, -1 when the line does not exist yet
+    private int[] mLineOf = new int[INITIAL_CAPACITY * DIMENSIONS];
+    private int mNameCount;
+    // Lines whose measure we cannot convert are only merged with the exact same measure
+    private final Map<String, Integer> mUnknownMeasureLines = new HashMap<>();
+
+    // One entry per line, amounts in base units unless the measure is unknown
+    private String[] mLineNames = new String[INITIAL_CAPACITY];
+    private double[] mLineAmounts = new double[INITIAL_CAPACITY];
+    private Measure[] mLineMeasures = new Measure[INITIAL_CAPACITY];
+    private String[] mLineRawMeasures = new String[INITIAL_CAPACITY];
+    private int mLineCount;
+
+    public ShoppingList(){
+        Arrays.fill(mLineOf, -1);
+    }
+
+    /* Adds the recipe scaled from its own servings to the given number */
+    public ShoppingList add(Recipe recipe, int servings){
+        int recipeServings = recipe.getServings();
+        return add(recipe, recipeServings > 0 ? (double) servings / recipeServings : servings);
+    }
+
+    /* Adds the recipe with every quantity multiplied, 10 for ten batches */
+    public ShoppingList add(Recipe recipe, double multiplier){
+        Ingredient[] ingredients = recipe.getIngredients();
+        if (ingredients == null || multiplier <= 0) return this;
+        for (Ingredient ingredient : ingredients){
+            if (ingredient == null || ingredient.getIngredient() == null) continue;
+            add(ingredient.getIngredient(), ingredient.getQuantity() * multiplier, ingredient.getMeasure());
+        }
+        return this;
+    }
+
+    private void add(String rawName, double quantity, @Nullable String rawMeasure){
+        int nameId = nameId(rawName);
+        Measure measure = Measure.parse(rawMeasure);
+        int line;
+        if (measure != null){
+            int slot = nameId * DIMENSIONS + measure.getDimension().ordinal();
+            line = mLineOf[slot];
+            if (line < 0){
+                line = newLine(rawName, measure, null);
+                mLineOf[slot] = line;
+            }
+            mLineAmounts[line] += measure.toBase(quantity);
+        } else {
+            String key = nameId + " " + rawMeasure;
+            Integer existing = mUnknownMeasureLines.get(key);
+            if (existing == null){
+                existing = newLine(rawName, null, rawMeasure);
+                mUnknownMeasureLines.put(key, existing);
+            }
+            line = existing;
+            mLineAmounts[line] += quantity;
+        }
+    }
+
+    /* The merged lines sorted by ingredient, each in its most readable measure */
+    public Ingredient[] build(){
+        Integer[] order = new Integer[mLineCount];
+        final String[] sortKeys = new String[mLineCount];
+        for (int i = 0; i < mLineCount; i++){
+            order[i] = i;
+            sortKeys[i] = TextNormalizer.normalize(mLineNames[i]);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byName = sortKeys[a].compareTo(sortKeys[b]);
+                return byName != 0 ? byName : a - b;
+            }
+        });
+
+        Ingredient[] ingredients = new Ingredient[mLineCount];
+        for (int i = 0; i < mLineCount; i++){
+            int line = order[i];
+            Ingredient ingredient = new Ingredient();
+            ingredient.setIngredient(mLineNames[line]);
+            Measure measure = mLineMeasures[line];
+            if (measure != null){
+                Measure readable = measure.readableFor(mLineAmounts[line]);
+                ingredient.setQuantity(readable.fromBase(mLineAmounts[line]));
+                ingredient.setMeasure(readable.name());
+            } else {
+                ingredient.setQuantity(mLineAmounts[line]);
+                ingredient.setMeasure(mLineRawMeasures[line]);
+            }
+            ingredients[i] = ingredient;
+        }
+        return ingredients;
+    }
+
+    private int nameId(String rawName){
+        Integer id = mRawNameIds.get(rawName);
+        if (id != null) return id;
+
+        String normalized = TextNormalizer.normalizeWords(rawName);
+        id = mNormalizedNameIds.get(normalized);
+        if (id == null){
+            id = mNameCount++;
+            mNormalizedNameIds.put(normalized, id);
+            if (mNameCount * DIMENSIONS > mLineOf.length){
+                int oldLength = mLineOf.length;
+                mLineOf = Arrays.copyOf(mLineOf, oldLength * 2);
+                Arrays.fill(mLineOf, oldLength, mLineOf.length, -1);
+            }
+        }
+        mRawNameIds.put(rawName, id);
+        return id;
+    }
+
+    private int newLine(String name, @Nullable Measure measure, @Nullable String rawMeasure){
+        if (mLineCount == mLineNames.length){
+            int capacity = mLineCount * 2;
+            mLineNames = Arrays.copyOf(mLineNames, capacity);
+            mLineAmounts = Arrays.copyOf(mLineAmounts, capacity);
+            mLineMeasures = Arrays.copyOf(mLineMeasures, capacity);
+            mLineRawMeasures = Arrays.copyOf(mLineRawMeasures, capacity);
+        }
+        mLineNames[mLineCount] = name;
+        mLineMeasures[mLineCount] = measure;
+        mLineRawMeasures[mLineCount] = rawMeasure;
+        return mLineCount++;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.baking.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/* Shared executor pools so background work is not spread across ad hoc threads */
+public class AppExecutors {
+
+    private static final int NETWORK_THREAD_COUNT = 3;
+    private static final int COMPUTATION_THREAD_COUNT = 2;
+
+    private static final Object LOCK = new Object();
+    private static AppExecutors sInstance;
+
+    private final Executor mDiskIO;
+    private final Executor mNetworkIO;
+    private final Executor mComputation;
+    private final Executor mMainThread;
+
+    @VisibleForTesting
+    public AppExecutors(Executor diskIO, Executor networkIO, Executor computation, Executor mainThread){
+        mDiskIO = diskIO;
+        mNetworkIO = networkIO;
+        mComputation = computation;
+        mMainThread = mainThread;
+    }
+
+    public static AppExecutors getInstance(){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null){
+                    sInstance = new AppExecutors(
+                            Executors.newSingleThreadExecutor(),
+                            Executors.newFixedThreadPool(NETWORK_THREAD_COUNT),
+                            Executors.newFixedThreadPool(COMPUTATION_THREAD_COUNT),
+                            new MainThreadExecutor());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* Single thread so reads and writes of local files never interleave */
+    public Executor diskIO(){
+        return mDiskIO;
+    }
+
+    public Executor networkIO(){
+        return mNetworkIO;
+    }
+
+    /* CPU bound work such as list diffs, kept off the io threads */
+    public Executor computation(){
+        return mComputation;
+    }
+
+    public Executor mainThread(){
+        return mMainThread;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mMainThreadHandler.post(command);
+        }
+    }
+}
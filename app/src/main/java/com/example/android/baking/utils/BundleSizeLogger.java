@@ -0,0 +1,80 @@
+package com.example.android.baking.utils;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import timber.log.Timber;
+
+/* Debug instrumentation that logs how large each saved state bundle is once parceled,
+ * so anything creeping toward a TransactionTooLargeException shows up early */
+public class BundleSizeLogger extends FragmentManager.FragmentLifecycleCallbacks
+        implements Application.ActivityLifecycleCallbacks {
+
+    // Well under the 1MB binder buffer, which is shared by every transaction in flight
+    private static final int WARN_BYTES = 50 * 1024;
+
+    private static boolean installed;
+
+    public static synchronized void install(Application application){
+        if (installed) return;
+        installed = true;
+        application.registerActivityLifecycleCallbacks(new BundleSizeLogger());
+    }
+
+    /* Size in bytes of the bundle once written to a parcel */
+    public static int sizeOf(Bundle bundle){
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void log(String owner, Bundle bundle){
+        int size = sizeOf(bundle);
+        if (size > WARN_BYTES) Timber.w("%s saved state is %s bytes", owner, size);
+        else Timber.d("%s saved state is %s bytes", owner, size);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        if (activity instanceof FragmentActivity){
+            ((FragmentActivity) activity).getSupportFragmentManager()
+                    .registerFragmentLifecycleCallbacks(this, true);
+        }
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        log(activity.getClass().getSimpleName(), outState);
+    }
+
+    @Override
+    public void onFragmentSaveInstanceState(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull Bundle outState) {
+        log(f.getClass().getSimpleName(), outState);
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {}
+
+    @Override
+    public void onActivityResumed(Activity activity) {}
+
+    @Override
+    public void onActivityPaused(Activity activity) {}
+
+    @Override
+    public void onActivityStopped(Activity activity) {}
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {}
+}
@@ -0,0 +1,82 @@
+package com.example.android.baking.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.R;
+import com.example.android.baking.data.Step;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+/* Process wide image pipeline: a sized memory cache, a disk cache separate from the api cache,
+ * and decoding downsampled to the target view in a two byte per pixel config */
+public class ImageUtils {
+
+    private static final String IMAGE_CACHE_DIR = "images";
+    private static final String VIDEO_FRAME_CACHE_DIR = "video_frames";
+    private static final long BYTES_PER_MB = 1024 * 1024;
+    // Fraction of the per app heap given to decoded bitmaps
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+
+    private static Picasso picasso;
+
+    public static synchronized Picasso getPicasso(Context context){
+        if (picasso==null){
+            Context appContext = context.getApplicationContext();
+            picasso = new Picasso.Builder(appContext)
+                    .downloader(new OkHttp3Downloader(buildImageClient(appContext)))
+                    .memoryCache(new LruCache(getMemoryCacheBytes(appContext)))
+                    .addRequestHandler(new VideoFrameRequestHandler(
+                            new File(appContext.getCacheDir(), VIDEO_FRAME_CACHE_DIR),
+                            appContext.getResources().getInteger(R.integer.video_frame_cache_size_mb) * BYTES_PER_MB))
+                    // Photos have no alpha, RGB_565 halves the memory of every decoded bitmap
+                    .defaultBitmapConfig(Bitmap.Config.RGB_565)
+                    .build();
+        }
+        return picasso;
+    }
+
+    /* An image to stand in for the step video: the thumbnail, or a frame of whichever url is a video */
+    @Nullable
+    public static String getPosterUrl(Step step){
+        String thumbnail = step.getThumbnailURL();
+        if (thumbnail != null && !thumbnail.isEmpty()) return thumbnail;
+        String video = step.getVideoURL();
+        return VideoFrameRequestHandler.isVideoUrl(video) ? video : null;
+    }
+
+    /* Pauses requests carrying the tag while a list flings and resumes them once it settles */
+    public static RecyclerView.OnScrollListener pauseOnFling(final Context context, final Object tag){
+        return new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_SETTLING) getPicasso(context).pauseTag(tag);
+                else getPicasso(context).resumeTag(tag);
+            }
+        };
+    }
+
+    /* Images get their own disk cache so they never evict the recipe catalog */
+    private static OkHttpClient buildImageClient(Context context){
+        long maxBytes = context.getResources().getInteger(R.integer.image_cache_size_mb) * BYTES_PER_MB;
+        return new OkHttpClient.Builder()
+                .cache(new Cache(new File(context.getCacheDir(), IMAGE_CACHE_DIR), maxBytes))
+                .build();
+    }
+
+    private static int getMemoryCacheBytes(Context context){
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = activityManager == null ? 16 : activityManager.getMemoryClass();
+        return (int) (memoryClassMb * BYTES_PER_MB / MEMORY_CACHE_DIVISOR);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.android.baking.utils;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.Step;
+import com.example.android.baking.json.IngredientTypeAdapter;
+import com.example.android.baking.json.RecipeTypeAdapter;
+import com.example.android.baking.json.StepTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/* One Gson instance with the streaming recipe adapters, shared by retrofit and local storage */
+public class JsonUtils {
+
+    private static Gson gson;
+    private static GsonConverterFactory gsonConverterFactory;
+
+    public static synchronized Gson getGson(){
+        if (gson==null){
+            IngredientTypeAdapter ingredientAdapter = new IngredientTypeAdapter();
+            StepTypeAdapter stepAdapter = new StepTypeAdapter();
+            gson = new GsonBuilder()
+                    .registerTypeAdapter(Ingredient.class, ingredientAdapter.nullSafe())
+                    .registerTypeAdapter(Step.class, stepAdapter.nullSafe())
+                    .registerTypeAdapter(Recipe.class,
+                            new RecipeTypeAdapter(ingredientAdapter, stepAdapter).nullSafe())
+                    .create();
+        }
+        return gson;
+    }
+
+    public static synchronized GsonConverterFactory getConverterFactory(){
+        if (gsonConverterFactory==null){
+            gsonConverterFactory = GsonConverterFactory.create(getGson());
+        }
+        return gsonConverterFactory;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.baking.utils;
+
+import android.content.Context;
+
+import com.example.android.baking.R;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.File;
+
+/* Process wide disk cache for step videos, replays are served from disk once the bytes are present */
+public class MediaCacheUtils {
+
+    private static final String MEDIA_CACHE_DIR = "media";
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    // A SimpleCache locks its directory, so there must only ever be one per process
+    private static SimpleCache cache;
+    private static DataSource.Factory dataSourceFactory;
+
+    /* Least recently used media is evicted once the cache grows past R.integer.media_cache_size_mb */
+    public static synchronized Cache getCache(Context context){
+        if (cache==null){
+            Context appContext = context.getApplicationContext();
+            long maxBytes = appContext.getResources().getInteger(R.integer.media_cache_size_mb) * BYTES_PER_MB;
+            cache = new SimpleCache(
+                    new File(appContext.getCacheDir(), MEDIA_CACHE_DIR),
+                    new LeastRecentlyUsedCacheEvictor(maxBytes),
+                    new ExoDatabaseProvider(appContext));
+        }
+        return cache;
+    }
+
+    /* Reads through the cache and falls back to the network for anything missing */
+    public static synchronized DataSource.Factory getDataSourceFactory(Context context){
+        if (dataSourceFactory==null){
+            Context appContext = context.getApplicationContext();
+            DataSource.Factory upstreamFactory = new DefaultDataSourceFactory(appContext,
+                    Util.getUserAgent(appContext, appContext.getString(R.string.app_name)));
+            dataSourceFactory = new CacheDataSourceFactory(
+                    getCache(appContext),
+                    upstreamFactory,
+                    CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+        }
+        return dataSourceFactory;
+    }
+}
@@ -1,28 +1,125 @@
 package com.example.android.baking.utils;
 
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.android.baking.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+import timber.log.Timber;
 
 public class NetworkUtils {
 
     public static final String BASE_RECIPES_URL="http://go.udacity.com/";
     public static final String RECIPES_ENDPOINT="android-baking-app-json";
 
+    /* Paging parameters, both count recipes */
+    public static final String QUERY_OFFSET = "offset";
+    public static final String QUERY_LIMIT = "limit";
+
+    /* Validators of a response and the request headers that send them back */
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    private static final AtomicInteger sCacheHits = new AtomicInteger();
+    private static final AtomicInteger sCacheMisses = new AtomicInteger();
+    private static final AtomicInteger sCacheRevalidations = new AtomicInteger();
+
     private static Retrofit retrofit;
-    private static OkHttpClient client = new OkHttpClient();
-    private static GsonConverterFactory gsonConverterFactory = GsonConverterFactory.create();
+    private static OkHttpClient client;
 
     /* Sets up the retrofit instance for retrieving the recipes from the network */
-    public static Retrofit getRetrofitInstance(){
+    public static synchronized Retrofit getRetrofitInstance(Context context){
         if (retrofit==null){
             retrofit = new retrofit2.Retrofit.Builder()
                     .baseUrl(BASE_RECIPES_URL)
-                    .client(client)
-                    .addConverterFactory(gsonConverterFactory)
+                    .client(getClient(context))
+                    .addConverterFactory(JsonUtils.getConverterFactory())
                     .build();
         }
         return retrofit;
     }
 
+    /* Shared client backed by a size limited disk cache in the app cache directory */
+    public static synchronized OkHttpClient getClient(Context context){
+        if (client==null){
+            long maxBytes = context.getResources().getInteger(R.integer.http_cache_size_mb) * BYTES_PER_MB;
+            client = buildClient(new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIR), maxBytes);
+        }
+        return client;
+    }
+
+    /* Gzip is negotiated transparently by OkHttp as long as no Accept-Encoding header is set by hand */
+    @VisibleForTesting
+    static OkHttpClient buildClient(@Nullable File cacheDir, long maxCacheBytes){
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .addInterceptor(new CacheStatsInterceptor());
+        if (cacheDir != null) builder.cache(new Cache(cacheDir, maxCacheBytes));
+        return builder.build();
+    }
+
+    /* Responses served from disk without touching the network */
+    public static int getCacheHitCount(){ return sCacheHits.get(); }
+
+    /* Responses downloaded in full */
+    public static int getCacheMissCount(){ return sCacheMisses.get(); }
+
+    /* Responses confirmed unchanged by the server with a 304 */
+    public static int getCacheRevalidationCount(){ return sCacheRevalidations.get(); }
+
+    @VisibleForTesting
+    static void resetCacheStats(){
+        sCacheHits.set(0);
+        sCacheMisses.set(0);
+        sCacheRevalidations.set(0);
+    }
+
+    /* Forces revalidation of every cached response and counts where each response came from. A
+     * request carrying its own validators bypasses the cache and gets the server's 304 back. */
+    private static class CacheStatsInterceptor implements Interceptor {
+
+        private static final CacheControl REVALIDATE = new CacheControl.Builder()
+                .maxAge(0, TimeUnit.SECONDS)
+                .build();
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+
+            // max-age=0 turns a cached response into a conditional If-None-Match/If-Modified-Since request
+            if (request.cacheControl().maxAgeSeconds() == -1) request = request.newBuilder().cacheControl(REVALIDATE).build();
+            Response response = chain.proceed(request);
+
+            if (response.networkResponse() == null) {
+                if (response.cacheResponse() != null) sCacheHits.incrementAndGet();
+            } else if (response.networkResponse().code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                sCacheRevalidations.incrementAndGet();
+            } else {
+                sCacheMisses.incrementAndGet();
+            }
+            Timber.d("%s hits=%s misses=%s revalidated=%s", request.url().encodedPath(),
+                    sCacheHits.get(), sCacheMisses.get(), sCacheRevalidations.get());
+            return response;
+        }
+    }
+
 }
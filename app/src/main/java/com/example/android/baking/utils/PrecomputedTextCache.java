@@ -0,0 +1,52 @@
+package com.example.android.baking.utils;
+
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import timber.log.Timber;
+
+/* Measures text on a background thread ahead of time so the ui thread only attaches the
+ * finished layout. One cache serves all text views sharing the style it was created from. */
+public class PrecomputedTextCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private final PrecomputedTextCompat.Params mParams;
+    private final LruCache<String, PrecomputedTextCompat> mCache = new LruCache<>(MAX_ENTRIES);
+    private final AppExecutors mExecutors = AppExecutors.getInstance();
+
+    public PrecomputedTextCache(TextView styleSource){
+        mParams = TextViewCompat.getTextMetricsParams(styleSource);
+    }
+
+    /* Measures the text in the background unless it is already cached */
+    public void prefetch(@Nullable final String text){
+        if (text == null || text.isEmpty() || mCache.get(text) != null) return;
+        mExecutors.computation().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mCache.get(text) == null) mCache.put(text, PrecomputedTextCompat.create(text, mParams));
+            }
+        });
+    }
+
+    /* Attaches the precomputed text if it is ready, otherwise falls back to plain text */
+    public void setText(TextView textView, @Nullable String text){
+        PrecomputedTextCompat precomputed = text == null ? null : mCache.get(text);
+        if (precomputed != null){
+            try {
+                TextViewCompat.setPrecomputedText(textView, precomputed);
+                return;
+            } catch (IllegalArgumentException e){
+                // The view's style changed since the params were taken
+                Timber.d(e, "Precomputed text does not match the text view");
+            }
+        }
+        textView.setText(text);
+        prefetch(text);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.baking.utils;
+
+/* Ingredient quantities as cooks write them, "1½" and "⅓" rather than "1.5" and "0.333".
+ * Amounts near an eighth or a third become a fraction, anything else keeps up to two decimals.
+ * Common amounts come from a prebuilt table and the rest are appended without boxing or
+ * String.format, so formatting a list allocates little more than its strings. */
+public class QuantityFormatter {
+
+    // How far from a fraction an amount may be and still be written as one, 0.333 is a third
+    private static final double FRACTION_TOLERANCE = 0.01;
+    // Past this the fraction no longer matters to anyone measuring
+    private static final double WHOLE_ONLY_FROM = 100;
+
+    private static final char[] EIGHTHS = {0, '⅛', '¼', '⅜', '½', '⅝', '¾', '⅞'};
+    private static final char[] THIRDS = {0, '⅓', '⅔'};
+
+    // Every eighth and third below the limit, indexed by its numerator
+    private static final int CACHED_WHOLES = 32;
+    private static final String[] CACHED_EIGHTHS = new String[CACHED_WHOLES * 8];
+    private static final String[] CACHED_THIRDS = new String[CACHED_WHOLES * 3];
+    static {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < CACHED_EIGHTHS.length; i++){
+            builder.setLength(0);
+            CACHED_EIGHTHS[i] = appendFraction(builder, i / 8, EIGHTHS[i % 8]).toString();
+        }
+        for (int i = 0; i < CACHED_THIRDS.length; i++){
+            builder.setLength(0);
+            CACHED_THIRDS[i] = appendFraction(builder, i / 3, THIRDS[i % 3]).toString();
+        }
+    }
+
+    private QuantityFormatter(){}
+
+    public static String format(double quantity){
+        if (quantity >= 0 && quantity < CACHED_WHOLES){
+            int eighths = (int) Math.round(quantity * 8);
+            if (Math.abs(quantity - eighths / 8.0) <= FRACTION_TOLERANCE && eighths < CACHED_EIGHTHS.length)
+                return CACHED_EIGHTHS[eighths];
+            int thirds = (int) Math.round(quantity * 3);
+            if (Math.abs(quantity - thirds / 3.0) <= FRACTION_TOLERANCE && thirds < CACHED_THIRDS.length)
+                return CACHED_THIRDS[thirds];
+        }
+        return append(new StringBuilder(8), quantity).toString();
+    }
+
+    /* Appends the quantity to a builder the caller reuses */
+    public static StringBuilder append(StringBuilder builder, double quantity){
+        if (Double.isNaN(quantity) || Double.isInfinite(quantity)) return builder.append(quantity);
+        if (quantity < 0){
+            builder.append('-');
+            quantity = -quantity;
+        }
+        if (quantity >= WHOLE_ONLY_FROM) return builder.append(Math.round(quantity));
+
+        long eighths = Math.round(quantity * 8);
+        if (Math.abs(quantity - eighths / 8.0) <= FRACTION_TOLERANCE)
+            return appendFraction(builder, eighths / 8, EIGHTHS[(int) (eighths % 8)]);
+        long thirds = Math.round(quantity * 3);
+        if (Math.abs(quantity - thirds / 3.0) <= FRACTION_TOLERANCE)
+            return appendFraction(builder, thirds / 3, THIRDS[(int) (thirds % 3)]);
+
+        // Two decimals at most, trailing zeros dropped
+        long hundredths = Math.round(quantity * 100);
+        builder.append(hundredths / 100);
+        int decimals = (int) (hundredths % 100);
+        if (decimals != 0){
+            builder.append('.').append((char) ('0' + decimals / 10));
+            if (decimals % 10 != 0) builder.append((char) ('0' + decimals % 10));
+        }
+        return builder;
+    }
+
+    /* A whole number and a fraction glyph, "½" alone when there is no whole part */
+    private static StringBuilder appendFraction(StringBuilder builder, long whole, char fraction){
+        if (whole > 0 || fraction == 0) builder.append(whole);
+        if (fraction != 0) builder.append(fraction);
+        return builder;
+    }
+}
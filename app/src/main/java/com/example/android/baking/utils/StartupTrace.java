@@ -0,0 +1,50 @@
+package com.example.android.baking.utils;
+
+import android.app.Activity;
+import android.os.SystemClock;
+
+import androidx.core.os.TraceCompat;
+
+import timber.log.Timber;
+
+/* Names the startup phases in systrace and logs how long the app took to show its first recipes.
+ * Sections are synchronous, each one begins and ends on the thread that runs the phase. */
+public class StartupTrace {
+
+    public static final String APPLICATION_CREATE = "Startup.applicationCreate";
+    public static final String WARM_HTTP = "Startup.warmHttp";
+    public static final String WARM_JSON = "Startup.warmJson";
+    public static final String ACTIVITY_CREATE = "Startup.activityCreate";
+    public static final String DEFERRED_INIT = "Startup.deferredInit";
+
+    private static long sProcessStartMs;
+    private static boolean sFirstListReported;
+
+    /* Called first thing in Application.onCreate */
+    public static void markProcessStart(){
+        sProcessStartMs = SystemClock.elapsedRealtime();
+    }
+
+    /* Runs the phase inside a named trace section on the calling thread */
+    public static void section(String name, Runnable phase){
+        TraceCompat.beginSection(name);
+        try {
+            phase.run();
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /* Logs time to the first recipe list once per process and tells the system the app is fully drawn */
+    public static void onFirstRecipesShown(Activity activity){
+        if (sFirstListReported) return;
+        sFirstListReported = true;
+        Timber.i("Time to first recipe list: %s ms", SystemClock.elapsedRealtime() - sProcessStartMs);
+        try {
+            activity.reportFullyDrawn();
+        } catch (SecurityException e){
+            // KitKat asks for UPDATE_DEVICE_STATS here
+            Timber.d(e, "reportFullyDrawn not permitted");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.android.baking.utils;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import okio.ByteString;
+import okio.Okio;
+import timber.log.Timber;
+
+/* Lets Picasso load a still frame of a remote video as if it were an image. The retriever
+ * only reads the container index and one sync frame, never the whole video, and each frame
+ * is kept as a small jpeg on disk so later loads skip the retriever entirely. */
+public class VideoFrameRequestHandler extends RequestHandler {
+
+    private static final Set<String> VIDEO_EXTENSIONS =
+            new HashSet<>(Arrays.asList("mp4", "m4v", "webm", "3gp", "mkv"));
+
+    // Each retriever holds a connection and a decoder, keep them from crowding out other work
+    private static final int MAX_CONCURRENT_EXTRACTIONS = 2;
+    private static final int JPEG_QUALITY = 80;
+    // Frames near the start are often black or a title card
+    private static final int FRAME_POSITION_DIVISOR = 3;
+    private static final long US_PER_MS = 1000;
+
+    private final File mCacheDir;
+    private final long mMaxCacheBytes;
+    private final Semaphore mPermits = new Semaphore(MAX_CONCURRENT_EXTRACTIONS);
+
+    public VideoFrameRequestHandler(File cacheDir, long maxCacheBytes){
+        mCacheDir = cacheDir;
+        mMaxCacheBytes = maxCacheBytes;
+    }
+
+    /* True for http urls that point at a video file */
+    public static boolean isVideoUrl(@Nullable String url){
+        if (url == null || url.isEmpty()) return false;
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        String path = uri.getLastPathSegment();
+        if (!"http".equals(scheme) && !"https".equals(scheme) || path == null) return false;
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && VIDEO_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.US));
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        return data.uri != null && isVideoUrl(data.uri.toString());
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        String url = request.uri.toString();
+        File frameFile = new File(mCacheDir, ByteString.encodeUtf8(url).sha1().hex() + ".jpg");
+
+        // Picasso downsamples the cached jpeg to the target itself
+        if (frameFile.exists()) return fromDisk(frameFile);
+
+        try {
+            mPermits.acquire();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting to extract " + url);
+        }
+        try {
+            // Another request may have extracted the same frame while this one waited
+            if (frameFile.exists()) return fromDisk(frameFile);
+
+            Bitmap frame = extractFrame(url, request);
+            if (frame == null) throw new IOException("No frame in " + url);
+            writeFrame(frame, frameFile);
+            return new Result(frame, Picasso.LoadedFrom.NETWORK);
+        } finally {
+            mPermits.release();
+        }
+    }
+
+    private Result fromDisk(File frameFile) throws IOException {
+        // Touched so trimming treats the frame as recently used
+        frameFile.setLastModified(System.currentTimeMillis());
+        return new Result(Okio.source(frameFile), Picasso.LoadedFrom.DISK);
+    }
+
+    @Nullable
+    private Bitmap extractFrame(String url, Request request){
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(url, new HashMap<String, String>());
+            long frameTimeUs = 0;
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            if (duration != null) frameTimeUs = Long.parseLong(duration) / FRAME_POSITION_DIVISOR * US_PER_MS;
+
+            // A sync frame decodes on its own, without the frames before it
+            if (request.hasSize() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1){
+                return retriever.getScaledFrameAtTime(frameTimeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                        request.targetWidth, request.targetHeight);
+            }
+            return retriever.getFrameAtTime(frameTimeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        } catch (RuntimeException e){
+            Timber.d(e, "Could not extract a frame from %s", url);
+            return null;
+        } finally {
+            retriever.release();
+        }
+    }
+
+    /* Written through a temp file so a partly written frame is never read back */
+    private void writeFrame(Bitmap frame, File frameFile){
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) return;
+        File tmp = new File(mCacheDir, frameFile.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            frame.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(frameFile)) tmp.delete();
+        } catch (IOException e){
+            Timber.d(e, "Could not cache frame %s", frameFile.getName());
+            tmp.delete();
+        } finally {
+            if (out != null) try { out.close(); } catch (IOException ignored) {}
+        }
+        trimCache();
+    }
+
+    /* Drops the least recently used frames once the directory is over its budget */
+    private synchronized void trimCache(){
+        File[] files = mCacheDir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) total += file.length();
+        if (total <= mMaxCacheBytes) return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        for (File file : files){
+            if (total <= mMaxCacheBytes) break;
+            long length = file.length();
+            if (file.delete()) total -= length;
+        }
+        Timber.d("Trimmed video frame cache to %s bytes", total);
+    }
+}
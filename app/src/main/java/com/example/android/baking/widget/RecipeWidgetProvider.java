@@ -5,8 +5,7 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.content.res.Resources;
-import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.View;
 import android.widget.RemoteViews;
 
@@ -14,28 +13,30 @@ import androidx.annotation.Nullable;
 
 import com.example.android.baking.R;
 import com.example.android.baking.RecipeActivity;
-import com.example.android.baking.data.Recipe;
-import com.example.android.baking.services.UpdateWidgetService;
 import com.example.android.baking.services.WidgetListRemoteViewsService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import timber.log.Timber;
 
 public class RecipeWidgetProvider extends AppWidgetProvider {
 
-    /* Updates an app widget using its id and relevant info */
+    /* Builds the whole widget layout, used the first time a widget is drawn. A null name shows
+     * the "save a recipe" prompt. */
     static void updateAppWidget
             (Context context,
              AppWidgetManager appWidgetManager,
-             int appWidgetId, @Nullable Recipe recipe){
+             int appWidgetId, @Nullable String recipeName){
 
         RemoteViews views;
 
-        if (recipe == null){
+        if (recipeName == null){
             views = new RemoteViews(context.getPackageName(), R.layout.baking_widget);
             views.setTextViewText(R.id.widget_recipe_name, context.getString(R.string.save_a_recipe));
             views.setViewVisibility(R.id.widget_list_view, View.INVISIBLE);
         } else {
-            views = getListRemoteView(context, recipe);
+            views = getListRemoteView(context, appWidgetId, recipeName);
             views.setViewVisibility(R.id.widget_list_view, View.VISIBLE);
             views.setImageViewResource(R.id.muffin_image, R.drawable.icons8_confectionery_48);
             views.setViewVisibility(R.id.widget_add_image, View.INVISIBLE);
@@ -53,22 +54,70 @@ public class RecipeWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        UpdateWidgetService.startActionUpdateIngredientWidgets(context);
+        // The launcher wants these drawn from scratch, forget what they showed before
+        new WidgetPinStore(context).clearRendered(appWidgetIds);
+        // Keeps the process alive until the merged update has drawn these widgets
+        final PendingResult result = goAsync();
+        WidgetUpdateScheduler.getInstance(context).request(appWidgetIds, new Runnable() {
+            @Override
+            public void run() {
+                result.finish();
+            }
+        });
     }
 
-    /* Iterates through the list of all the widgets and updates them */
-    public static void updateIngredientWidgets(Context context, AppWidgetManager appWidgetmanager,
-                                               int[] appWidgetIds, @Nullable Recipe recipe){
+    /* Updates only the widgets whose recipe changed since they were last drawn. Widgets that already
+     * show a recipe get a partial update of the title and a refresh of their list data. Returns how
+     * many widgets were redrawn. */
+    static int updateIngredientWidgets(Context context, AppWidgetManager appWidgetmanager,
+                                               int[] appWidgetIds){
+        WidgetPinStore pinStore = new WidgetPinStore(context);
+        List<Integer> changedIds = new ArrayList<>();
+        int redrawn = 0;
+
         for (int appWidgetId : appWidgetIds){
-            updateAppWidget(context ,appWidgetmanager, appWidgetId, recipe);
+            // One widget that fails to draw, for example over an unreadable pin, leaves the rest drawn
+            try {
+                String signature = pinStore.getSignature(appWidgetId);
+                String renderedSignature = pinStore.getRenderedSignature(appWidgetId);
+                if (signature.equals(renderedSignature)) continue;
+
+                // The title only needs the name, the list reads the ingredients through the provider
+                String name = null;
+                if (!WidgetPinStore.SIGNATURE_EMPTY.equals(signature)){
+                    name = pinStore.getName(appWidgetId);
+                    if (name == null) name = "";
+                }
+
+                if (name == null || renderedSignature == null
+                        || WidgetPinStore.SIGNATURE_EMPTY.equals(renderedSignature)){
+                    updateAppWidget(context, appWidgetmanager, appWidgetId, name);
+                } else {
+                    RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.baking_widget);
+                    views.setTextViewText(R.id.widget_recipe_name, name);
+                    appWidgetmanager.partiallyUpdateAppWidget(appWidgetId, views);
+                }
+                if (name != null) changedIds.add(appWidgetId);
+                pinStore.setRenderedSignature(appWidgetId, signature);
+                redrawn++;
+            } catch (RuntimeException e){
+                Timber.e(e, "Unable to update widget %s", appWidgetId);
+            }
         }
-        //appWidgetmanager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list_view);
 
+        Timber.d("Updated %s of %s widgets", redrawn, appWidgetIds.length);
+        if (!changedIds.isEmpty()){
+            int[] ids = new int[changedIds.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = changedIds.get(i);
+            appWidgetmanager.notifyAppWidgetViewDataChanged(ids, R.id.widget_list_view);
+        }
+        return redrawn;
     }
 
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
         super.onDeleted(context, appWidgetIds);
+        new WidgetPinStore(context).remove(appWidgetIds);
     }
 
     @Override
@@ -81,21 +130,18 @@ public class RecipeWidgetProvider extends AppWidgetProvider {
         super.onDisabled(context);
     }
 
-    private static RemoteViews getListRemoteView(Context context, Recipe recipe){
+    private static RemoteViews getListRemoteView(Context context, int appWidgetId, String recipeName){
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.baking_widget);
 
-        views.setTextViewText(R.id.widget_recipe_name, recipe.getName());
+        views.setTextViewText(R.id.widget_recipe_name, recipeName);
 
         Timber.d("Setting the remote adapter");
         Intent adapterIntent = new Intent(context, WidgetListRemoteViewsService.class);
+        adapterIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+        // Makes the intent unique per widget so each widget gets its own factory
+        adapterIntent.setData(Uri.parse(adapterIntent.toUri(Intent.URI_INTENT_SCHEME)));
         views.setRemoteAdapter(R.id.widget_list_view, adapterIntent);
 
-        //Timber.d("inspecting adapterIntent",adapterIntent.);
-        //views.setEmptyView(R.id.widget_list_view);
-
         return views;
     }
-
-
-
 }
@@ -0,0 +1,92 @@
+package com.example.android.baking.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.baking.R;
+import com.example.android.baking.adapters.RecipeAdapter;
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+import timber.log.Timber;
+
+/* Lets each widget pin its own recipe when it is added or reconfigured */
+public class WidgetConfigureActivity extends AppCompatActivity implements
+        RecipeAdapter.RecipeAdapterOnClickHandler, RecipeRepository.RecipesCallback {
+
+    @BindView(R.id.widget_configure_recyclerview) RecyclerView mRecipeRecyclerView;
+    @BindView(R.id.widget_configure_progress_bar) ProgressBar mProgressBar;
+
+    private RecipeAdapter mRecipeAdapter;
+    private int mAppWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_widget_configure);
+        ButterKnife.bind(this);
+
+        Bundle extras = getIntent().getExtras();
+        if (extras != null){
+            mAppWidgetId = extras.getInt(AppWidgetManager.EXTRA_APPWIDGET_ID, AppWidgetManager.INVALID_APPWIDGET_ID);
+        }
+        if (mAppWidgetId == AppWidgetManager.INVALID_APPWIDGET_ID){
+            finish();
+            return;
+        }
+
+        // Backing out keeps the widget, it then follows the newest favorite saved from the steps screen
+        setResult(RESULT_OK, resultIntent());
+
+        mRecipeRecyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mRecipeAdapter = new RecipeAdapter(this, this);
+        mRecipeRecyclerView.setAdapter(mRecipeAdapter);
+
+        RecipeRepository.getInstance(this).loadRecipes(this);
+    }
+
+    @Override
+    public void onRecipesLoaded(Recipe[] recipes, ChangeSet changes) {
+        mRecipeAdapter.setmRecipeData(recipes);
+        mProgressBar.setVisibility(View.INVISIBLE);
+        mRecipeRecyclerView.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void onRecipesUnavailable(Throwable t) {
+        Timber.d("No recipes to pin: %s", t.getMessage());
+        finish();
+    }
+
+    /* Pins the clicked recipe to this widget only and redraws it */
+    @Override
+    public void onClick(Recipe clickedRecipe) {
+        new WidgetPinStore(this).pin(mAppWidgetId, clickedRecipe);
+        finish();
+    }
+
+    /* Draws the widget whether a recipe was pinned or not */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RecipeRepository.getInstance(this).removeCallback(this);
+        if (isFinishing() && mAppWidgetId != AppWidgetManager.INVALID_APPWIDGET_ID)
+            WidgetUpdateScheduler.getInstance(this).request(new int[]{mAppWidgetId}, null);
+    }
+
+    private Intent resultIntent(){
+        Intent resultValue = new Intent();
+        resultValue.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, mAppWidgetId);
+        return resultValue;
+    }
+}
@@ -1,27 +1,43 @@
 package com.example.android.baking.widget;
 
+import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.Binder;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
 import com.example.android.baking.R;
-import com.example.android.baking.RecipeActivity;
-import com.example.android.baking.data.Ingredient;
-import com.example.android.baking.data.Recipe;
-import com.google.gson.Gson;
+import com.example.android.baking.data.IngredientsContract;
+import com.example.android.baking.data.IngredientsContract.IngredientEntry;
+import com.example.android.baking.utils.QuantityFormatter;
 
 import timber.log.Timber;
 
 public class WidgetListRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
+
+    private static final String[] PROJECTION = {
+            IngredientEntry.COLUMN_QUANTITY,
+            IngredientEntry.COLUMN_MEASURE,
+            IngredientEntry.COLUMN_INGREDIENT
+    };
+    private static final int INDEX_QUANTITY = 0;
+    private static final int INDEX_MEASURE = 1;
+    private static final int INDEX_INGREDIENT = 2;
+
     Context mContext;
-    Ingredient[] mIngredients;
+    private final int mAppWidgetId;
+
+    // Row text is prepared once per data change so getViewAt only fills in views
+    private String[] mQuantities;
+    private String[] mMeasures;
+    private String[] mIngredients;
 
     public WidgetListRemoteViewsFactory(Context applicationContext, Intent intent){
         mContext = applicationContext;
-        mIngredients = null;
-        Timber.d("creating list remote views factory");
+        mAppWidgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, AppWidgetManager.INVALID_APPWIDGET_ID);
+        Timber.d("creating list remote views factory for widget %s", mAppWidgetId);
     }
 
     @Override
@@ -31,14 +47,26 @@ public class WidgetListRemoteViewsFactory implements RemoteViewsService.RemoteVi
     @Override
     public void onDataSetChanged() {
 
-        // Get the saved ingredients from the shared preferences
-        SharedPreferences preferences = mContext.getSharedPreferences("pref", Context.MODE_PRIVATE);
-        String recipeJson = preferences.getString(RecipeActivity.RECIPE_KEY, null);
-
-        Gson gson = new Gson();
-        Recipe recipe = gson.fromJson(recipeJson, Recipe.class);
-
-        if (recipe != null) mIngredients = recipe.getIngredients();
+        // The provider is not exported, so query it with this app's identity rather than the launcher's
+        final long identityToken = Binder.clearCallingIdentity();
+        try (Cursor cursor = mContext.getContentResolver().query(
+                IngredientsContract.buildWidgetUri(mAppWidgetId), PROJECTION, null, null, null)) {
+            int count = cursor == null ? 0 : cursor.getCount();
+            String[] quantities = new String[count];
+            String[] measures = new String[count];
+            String[] ingredients = new String[count];
+            for (int i = 0; i < count; i++){
+                cursor.moveToPosition(i);
+                quantities[i] = QuantityFormatter.format(cursor.getDouble(INDEX_QUANTITY));
+                measures[i] = cursor.getString(INDEX_MEASURE);
+                ingredients[i] = cursor.getString(INDEX_INGREDIENT);
+            }
+            mQuantities = quantities;
+            mMeasures = measures;
+            mIngredients = ingredients;
+        } finally {
+            Binder.restoreCallingIdentity(identityToken);
+        }
 
         Timber.d("ListWidgetService onDataSetChanged() fired");
     }
@@ -61,20 +89,16 @@ public class WidgetListRemoteViewsFactory implements RemoteViewsService.RemoteVi
 
         RemoteViews views = new RemoteViews(mContext.getPackageName(), R.layout.widget_list_item);
 
-        String quantity = String.valueOf(mIngredients[i].getQuantity());
-        String measure = mIngredients[i].getMeasure();
-        String ingredient = mIngredients[i].getIngredient();
-
-        views.setTextViewText(R.id.widget_quantity, quantity);
-        views.setTextViewText(R.id.widget_ingredient, ingredient);
-        views.setTextViewText(R.id.widget_measure, measure);
+        views.setTextViewText(R.id.widget_quantity, mQuantities[i]);
+        views.setTextViewText(R.id.widget_ingredient, mIngredients[i]);
+        views.setTextViewText(R.id.widget_measure, mMeasures[i]);
 
         return views;
     }
 
     @Override
     public RemoteViews getLoadingView() {
-        return null;
+        return new RemoteViews(mContext.getPackageName(), R.layout.widget_loading_item);
     }
 
     @Override
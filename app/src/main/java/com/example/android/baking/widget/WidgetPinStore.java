@@ -0,0 +1,252 @@
+package com.example.android.baking.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.example.android.baking.data.BinaryCatalog;
+import com.example.android.baking.data.ChangeSet;
+import com.example.android.baking.data.FavoritesStore;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.RecipeRepository;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.JsonParseException;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/* Remembers which recipe each widget shows and what each widget last rendered. A pin only keeps
+ * the recipe's id, content hash and name, the recipe itself is read from the saved catalog when
+ * its ingredients are needed. Widgets without a pin of their own follow the favorite saved most
+ * recently from the steps screen. */
+public class WidgetPinStore {
+
+    public static final String PREFS_NAME = "widget_pins";
+
+    // Every key describing a pin starts with this
+    private static final String KEY_PIN_PREFIX = "pin_";
+    private static final String KEY_RECIPE_PREFIX = KEY_PIN_PREFIX + "recipe_";
+    private static final String KEY_HASH_PREFIX = KEY_PIN_PREFIX + "hash_";
+    private static final String KEY_NAME_PREFIX = KEY_PIN_PREFIX + "name_";
+    private static final String KEY_RENDERED_PREFIX = "rendered_";
+    // Earlier versions kept the whole recipe json per widget, converted the first time it is read
+    private static final String KEY_LEGACY_RECIPE_PREFIX = "recipe_";
+
+    /* Signature of a widget showing the "save a recipe" prompt */
+    static final String SIGNATURE_EMPTY = "empty";
+
+    private final SharedPreferences mPins;
+    private final FavoritesStore mFavorites;
+    private final RecipeRepository mRepository;
+
+    /* What a widget remembers of its pinned recipe */
+    public static class Pin {
+        private final int mRecipeId;
+        private final long mContentHash;
+        @Nullable private final String mName;
+
+        Pin(int recipeId, long contentHash, @Nullable String name){
+            mRecipeId = recipeId;
+            mContentHash = contentHash;
+            mName = name;
+        }
+
+        public int getRecipeId(){
+            return mRecipeId;
+        }
+
+        public long getContentHash(){
+            return mContentHash;
+        }
+
+        @Nullable
+        public String getName(){
+            return mName;
+        }
+    }
+
+    public WidgetPinStore(Context context){
+        mPins = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mFavorites = FavoritesStore.getInstance(context);
+        mRepository = RecipeRepository.getInstance(context);
+    }
+
+    /* Pins a recipe to a single widget */
+    public void pin(int appWidgetId, Recipe recipe){
+        // Recipes parsed from json carry no hash until they are encoded
+        if (recipe.getContentHash() == 0) BinaryCatalog.encode(new Recipe[]{recipe});
+        mPins.edit()
+                .putInt(recipeKey(appWidgetId), recipe.getId())
+                .putLong(hashKey(appWidgetId), recipe.getContentHash())
+                .putString(nameKey(appWidgetId), recipe.getName())
+                .remove(legacyKey(appWidgetId))
+                .remove(renderedKey(appWidgetId))
+                .apply();
+    }
+
+    /* The widget's own pin, null when it follows the newest favorite */
+    @Nullable
+    public Pin getPin(int appWidgetId){
+        if (mPins.contains(recipeKey(appWidgetId))){
+            return new Pin(mPins.getInt(recipeKey(appWidgetId), 0), mPins.getLong(hashKey(appWidgetId), 0),
+                    mPins.getString(nameKey(appWidgetId), null));
+        }
+        String legacyJson = mPins.getString(legacyKey(appWidgetId), null);
+        return legacyJson == null ? null : convertLegacyPin(appWidgetId, legacyJson);
+    }
+
+    /* The recipe pinned to a widget, decoded from the saved catalog on its own. Null when the
+     * widget has no pin or the catalog does not hold it. Reads from disk. */
+    @WorkerThread
+    @Nullable
+    public Recipe getPinnedRecipe(int appWidgetId){
+        Pin pin = getPin(appWidgetId);
+        return pin == null ? null : mRepository.readSavedRecipe(pin.mRecipeId);
+    }
+
+    /* Json of the favorite a widget shows, the newest one for a widget without a pin, or the pinned
+     * recipe's own when it was saved as a favorite too. Reads from disk. */
+    @WorkerThread
+    @Nullable
+    public String getFavoriteJson(int appWidgetId){
+        Pin pin = getPin(appWidgetId);
+        return pin == null ? mFavorites.getLatestJson() : mFavorites.getRecipeJson(pin.mRecipeId);
+    }
+
+    /* Identifies what a widget should show so unchanged widgets can be skipped. Pins are settled
+     * by their hash, widgets following a favorite read its json. */
+    @WorkerThread
+    String getSignature(int appWidgetId){
+        Pin pin = getPin(appWidgetId);
+        if (pin != null) return KEY_PIN_PREFIX + pin.mRecipeId + ":" + pin.mContentHash;
+        String favoriteJson = mFavorites.getLatestJson();
+        if (favoriteJson == null) return SIGNATURE_EMPTY;
+        return favoriteJson.length() + ":" + favoriteJson.hashCode();
+    }
+
+    /* Name of the recipe a widget shows, without reading the recipe */
+    @WorkerThread
+    @Nullable
+    String getName(int appWidgetId){
+        Pin pin = getPin(appWidgetId);
+        if (pin != null) return pin.mName;
+        List<FavoritesStore.Favorite> favorites = mFavorites.getFavorites();
+        return favorites.isEmpty() ? null : favorites.get(0).getName();
+    }
+
+    /* Moves pins and favorites of updated recipes to their new version, so widgets show what the
+     * catalog says now, and unpins recipes the catalog no longer has, which leaves those widgets
+     * following the newest favorite. Only stored ids and hashes are compared. Returns true when any
+     * stored recipe changed. */
+    public boolean refreshRecipes(ChangeSet changes){
+        int[] updated = changes.getUpdated();
+        int[] removed = changes.getRemoved();
+        if (updated.length == 0 && removed.length == 0) return false;
+        Recipe[] catalog = changes.getRecipes();
+        Map<Integer, Recipe> recipesById = new HashMap<>();
+        for (int position : updated) recipesById.put(catalog[position].getId(), catalog[position]);
+        Set<Integer> removedIds = new HashSet<>();
+        for (int id : removed) removedIds.add(id);
+        boolean changed = false;
+
+        SharedPreferences.Editor pins = mPins.edit();
+        for (Map.Entry<String, ?> entry : mPins.getAll().entrySet()){
+            if (!entry.getKey().startsWith(KEY_RECIPE_PREFIX) || !(entry.getValue() instanceof Integer)) continue;
+            int recipeId = (Integer) entry.getValue();
+            String appWidgetId = entry.getKey().substring(KEY_RECIPE_PREFIX.length());
+            if (removedIds.contains(recipeId)){
+                pins.remove(entry.getKey())
+                        .remove(KEY_HASH_PREFIX + appWidgetId)
+                        .remove(KEY_NAME_PREFIX + appWidgetId);
+                changed = true;
+                continue;
+            }
+            Recipe current = recipesById.get(recipeId);
+            if (current == null || current.getContentHash() == mPins.getLong(KEY_HASH_PREFIX + appWidgetId, 0)) continue;
+            pins.putLong(KEY_HASH_PREFIX + appWidgetId, current.getContentHash())
+                    .putString(KEY_NAME_PREFIX + appWidgetId, current.getName());
+            changed = true;
+        }
+        pins.apply();
+
+        if (!recipesById.isEmpty() && mFavorites.refreshRecipes(recipesById)) changed = true;
+        return changed;
+    }
+
+    /* Keeps only what a pin needs out of a pin saved as json, which is then dropped */
+    @Nullable
+    private Pin convertLegacyPin(int appWidgetId, String json){
+        Recipe recipe = null;
+        try {
+            recipe = JsonUtils.getGson().fromJson(json, Recipe.class);
+        } catch (JsonParseException e){
+            Timber.e(e, "Discarding unreadable pin of widget %s", appWidgetId);
+        }
+        if (recipe == null){
+            mPins.edit().remove(legacyKey(appWidgetId)).apply();
+            return null;
+        }
+        pin(appWidgetId, recipe);
+        return new Pin(recipe.getId(), recipe.getContentHash(), recipe.getName());
+    }
+
+    @Nullable
+    String getRenderedSignature(int appWidgetId){
+        return mPins.getString(renderedKey(appWidgetId), null);
+    }
+
+    void setRenderedSignature(int appWidgetId, String signature){
+        mPins.edit().putString(renderedKey(appWidgetId), signature).apply();
+    }
+
+    /* Forgets what was rendered so the next update rebuilds these widgets in full */
+    void clearRendered(int[] appWidgetIds){
+        SharedPreferences.Editor editor = mPins.edit();
+        for (int appWidgetId : appWidgetIds) editor.remove(renderedKey(appWidgetId));
+        editor.apply();
+    }
+
+    void remove(int[] appWidgetIds){
+        SharedPreferences.Editor editor = mPins.edit();
+        for (int appWidgetId : appWidgetIds){
+            editor.remove(recipeKey(appWidgetId));
+            editor.remove(hashKey(appWidgetId));
+            editor.remove(nameKey(appWidgetId));
+            editor.remove(legacyKey(appWidgetId));
+            editor.remove(renderedKey(appWidgetId));
+        }
+        editor.apply();
+    }
+
+    /* True for preference keys that describe a pinned recipe */
+    public static boolean isRecipeKey(String key){
+        return key != null && (key.startsWith(KEY_PIN_PREFIX) || key.startsWith(KEY_LEGACY_RECIPE_PREFIX));
+    }
+
+    private static String recipeKey(int appWidgetId){
+        return KEY_RECIPE_PREFIX + appWidgetId;
+    }
+
+    private static String hashKey(int appWidgetId){
+        return KEY_HASH_PREFIX + appWidgetId;
+    }
+
+    private static String nameKey(int appWidgetId){
+        return KEY_NAME_PREFIX + appWidgetId;
+    }
+
+    private static String legacyKey(int appWidgetId){
+        return KEY_LEGACY_RECIPE_PREFIX + appWidgetId;
+    }
+
+    private static String renderedKey(int appWidgetId){
+        return KEY_RENDERED_PREFIX + appWidgetId;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.android.baking.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.android.baking.R;
+import com.example.android.baking.utils.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/* Redraws the ingredient widgets on the shared disk thread. Requests arriving close together are
+ * merged into one pass over every widget any of them asked for, each new request pushing the pass
+ * back a little but never past a maximum delay. The pass itself skips widgets whose rendered
+ * signature has not changed, so a burst of saves or launcher updates redraws each widget once. */
+public class WidgetUpdateScheduler {
+
+    /* Draws the given widgets, all of them when null, and returns how many were redrawn */
+    interface Renderer {
+        int render(@Nullable int[] appWidgetIds);
+    }
+
+    /* Delays the start of a pass, on the main thread in the app */
+    interface Timer {
+        long now();
+        void schedule(Runnable task, long delayMillis);
+        void cancel(Runnable task);
+    }
+
+    private static final Object LOCK = new Object();
+    private static WidgetUpdateScheduler sInstance;
+
+    private final Renderer mRenderer;
+    private final Timer mTimer;
+    private final Executor mExecutor;
+    private final long mDebounceMillis;
+    private final long mMaxDelayMillis;
+
+    // Guarded by this
+    private boolean mPendingAll;
+    private final Set<Integer> mPendingIds = new LinkedHashSet<>();
+    private final List<Runnable> mPendingDone = new ArrayList<>();
+    private long mFirstPendingAt = -1;
+
+    private final AtomicInteger mRequested = new AtomicInteger();
+    private final AtomicInteger mExecuted = new AtomicInteger();
+    private final AtomicInteger mRedrawn = new AtomicInteger();
+
+    private final Runnable mDispatch = new Runnable() {
+        @Override
+        public void run() {
+            mExecutor.execute(mPass);
+        }
+    };
+
+    private final Runnable mPass = new Runnable() {
+        @Override
+        public void run() {
+            runPass();
+        }
+    };
+
+    @VisibleForTesting
+    WidgetUpdateScheduler(Renderer renderer, Timer timer, Executor executor, long debounceMillis, long maxDelayMillis){
+        mRenderer = renderer;
+        mTimer = timer;
+        mExecutor = executor;
+        mDebounceMillis = debounceMillis;
+        mMaxDelayMillis = maxDelayMillis;
+    }
+
+    public static WidgetUpdateScheduler getInstance(Context context){
+        if (sInstance == null){
+            synchronized (LOCK){
+                if (sInstance == null){
+                    Context appContext = context.getApplicationContext();
+                    Resources resources = appContext.getResources();
+                    sInstance = new WidgetUpdateScheduler(new ProviderRenderer(appContext), new MainThreadTimer(),
+                            AppExecutors.getInstance().diskIO(),
+                            resources.getInteger(R.integer.widget_update_debounce_millis),
+                            resources.getInteger(R.integer.widget_update_max_delay_millis));
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* Asks for every widget to be brought up to date */
+    public void requestAll(){
+        request(null, null);
+    }
+
+    /* Asks for these widgets, all of them when null, to be brought up to date. The optional
+     * callback runs on the disk thread once the pass covering this request is done. */
+    public void request(@Nullable int[] appWidgetIds, @Nullable Runnable onDone){
+        mRequested.incrementAndGet();
+        synchronized (this){
+            if (appWidgetIds == null) mPendingAll = true;
+            else for (int appWidgetId : appWidgetIds) mPendingIds.add(appWidgetId);
+            if (onDone != null) mPendingDone.add(onDone);
+
+            long now = mTimer.now();
+            if (mFirstPendingAt < 0) mFirstPendingAt = now;
+            long delay = Math.min(mDebounceMillis, mFirstPendingAt + mMaxDelayMillis - now);
+            mTimer.cancel(mDispatch);
+            mTimer.schedule(mDispatch, Math.max(delay, 0));
+        }
+    }
+
+    private void runPass(){
+        int[] appWidgetIds;
+        List<Runnable> done;
+        synchronized (this){
+            if (!mPendingAll && mPendingIds.isEmpty() && mPendingDone.isEmpty()) return;
+            appWidgetIds = mPendingAll ? null : toArray(mPendingIds);
+            done = new ArrayList<>(mPendingDone);
+            mPendingAll = false;
+            mPendingIds.clear();
+            mPendingDone.clear();
+            mFirstPendingAt = -1;
+        }
+
+        try {
+            mExecuted.incrementAndGet();
+            mRedrawn.addAndGet(mRenderer.render(appWidgetIds));
+        } catch (RuntimeException e){
+            // Thrown on the shared disk thread it would take the app down, the next request draws again
+            Timber.e(e, "Widget update pass failed");
+        } finally {
+            for (Runnable onDone : done) onDone.run();
+        }
+        Timber.d("Widget updates requested=%s executed=%s redrawn=%s",
+                mRequested.get(), mExecuted.get(), mRedrawn.get());
+    }
+
+    /* Update requests received */
+    public int getRequestedCount(){ return mRequested.get(); }
+
+    /* Passes actually run, each covering one or more requests */
+    public int getExecutedCount(){ return mExecuted.get(); }
+
+    /* Widgets redrawn, the rest of each pass was skipped as unchanged */
+    public int getRedrawnCount(){ return mRedrawn.get(); }
+
+    private static int[] toArray(Set<Integer> ids){
+        int[] array = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) array[i++] = id;
+        return array;
+    }
+
+    private static class ProviderRenderer implements Renderer {
+        private final Context mContext;
+
+        ProviderRenderer(Context context){
+            mContext = context;
+        }
+
+        @Override
+        public int render(@Nullable int[] appWidgetIds) {
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(mContext);
+            if (appWidgetIds == null)
+                appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(mContext, RecipeWidgetProvider.class));
+            return RecipeWidgetProvider.updateIngredientWidgets(mContext, appWidgetManager, appWidgetIds);
+        }
+    }
+
+    private static class MainThreadTimer implements Timer {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public long now() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            mHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            mHandler.removeCallbacks(task);
+        }
+    }
+}
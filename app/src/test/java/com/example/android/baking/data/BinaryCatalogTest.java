@@ -0,0 +1,136 @@
+package com.example.android.baking.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.example.android.baking.data.TestRecipes.recipe;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/* Writes catalogs in the binary format and maps them back */
+public class BinaryCatalogTest {
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void savedCatalog_readsBackEqual() throws IOException {
+        Recipe[] recipes = {recipe(1, "Nutella Pie", "flour", "Melt the chocolate."), recipe(7, "Brownies", "flour", null)};
+        File file = mFolder.newFile();
+        BinaryCatalog.encode(recipes).writeTo(file);
+
+        BinaryCatalog catalog = BinaryCatalog.open(file);
+
+        assertArrayEquals(recipes, catalog.readAll());
+        assertEquals(1, catalog.indexOf(7));
+        assertEquals(-1, catalog.indexOf(3));
+        assertEquals("Brownies", catalog.getName(1));
+        assertEquals(recipes[1].getContentHash(), catalog.getContentHash(1));
+    }
+
+    @Test
+    public void stepDescriptions_decodeOnFirstAccess() throws IOException {
+        Recipe[] recipes = {recipe(1, "Nutella Pie", "flour", "Melt the chocolate."), recipe(7, "Brownies", "flour", "Whisk the eggs.")};
+        BinaryCatalog catalog = BinaryCatalog.wrap(ByteBuffer.wrap(BinaryCatalog.encode(recipes).toByteArray()));
+
+        Recipe brownies = catalog.readRecipe(1);
+
+        assertEquals("Whisk the eggs.", brownies.getSteps()[0].getDescription());
+        assertEquals("Step", brownies.getSteps()[0].getShortDescription());
+    }
+
+    @Test
+    public void comparingAndHashing_leaveDescriptionsOnDisk() throws IOException {
+        Recipe[] recipes = {recipe(1, "Nutella Pie", "flour", "Melt the chocolate.")};
+        byte[] bytes = BinaryCatalog.encode(recipes).toByteArray();
+        BinaryCatalog catalog = BinaryCatalog.wrap(ByteBuffer.wrap(bytes));
+        Recipe first = catalog.readRecipe(0);
+        Recipe second = catalog.readRecipe(0);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.getSteps()[0], second.getSteps()[0]);
+        assertEquals(first.getSteps()[0].hashCode(), second.getSteps()[0].hashCode());
+
+        // A description decoded by any of the above would still read the old text
+        String text = new String(bytes, "ISO-8859-1");
+        bytes[text.indexOf("Melt")] = 'B';
+        assertEquals("Belt the chocolate.", first.getSteps()[0].getDescription());
+    }
+
+    @Test
+    public void nullIngredientsAndSteps_areLeftOut() throws IOException {
+        Recipe recipe = recipe(1, "Nutella Pie", new Ingredient[]{null, TestRecipes.ingredient("flour")},
+                new Step[]{TestRecipes.step(0, "Melt."), null});
+        BinaryCatalog catalog = BinaryCatalog.wrap(ByteBuffer.wrap(BinaryCatalog.encode(new Recipe[]{recipe}).toByteArray()));
+
+        Recipe saved = catalog.readRecipe(0);
+
+        assertEquals(1, saved.getIngredients().length);
+        assertEquals("flour", saved.getIngredients()[0].getIngredient());
+        assertEquals(1, saved.getSteps().length);
+        assertEquals("Melt.", saved.getSteps()[0].getDescription());
+    }
+
+    @Test
+    public void changedRecipe_changesOnlyItsHash() {
+        Recipe[] before = {recipe(1, "Nutella Pie", "flour", "Melt."), recipe(7, "Brownies", "flour", "Whisk.")};
+        Recipe[] after = {recipe(1, "Nutella Pie", "flour", "Melt."), recipe(7, "Brownies", "flour", "Whisk well.")};
+        BinaryCatalog.encode(before);
+        BinaryCatalog.encode(after);
+
+        assertEquals(before[0].getContentHash(), after[0].getContentHash());
+        assertNotEquals(before[1].getContentHash(), after[1].getContentHash());
+    }
+
+    @Test
+    public void concurrentWrites_leaveOneWholeCatalog() throws Exception {
+        final File file = new File(mFolder.getRoot(), "catalog.bin");
+        final Recipe[][] catalogs = new Recipe[4][];
+        Thread[] writers = new Thread[catalogs.length];
+        final IOException[] failure = new IOException[1];
+        for (int i = 0; i < writers.length; i++){
+            catalogs[i] = TestRecipes.catalog(200 * (i + 1));
+            final BinaryCatalog.Encoded encoded = BinaryCatalog.encode(catalogs[i]);
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10; j++) encoded.writeTo(file);
+                    } catch (IOException e){
+                        failure[0] = e;
+                    }
+                }
+            });
+        }
+        for (Thread writer : writers) writer.start();
+        for (Thread writer : writers) writer.join();
+
+        assertNull(failure[0]);
+        Recipe[] saved = BinaryCatalog.open(file).readAll();
+        assertArrayEquals(catalogs[saved.length / 200 - 1], saved);
+        // Only the catalog is left, no temporary files
+        assertEquals(1, mFolder.getRoot().list().length);
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFile_isRejected() throws IOException {
+        File file = mFolder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)){
+            out.write("[{\"id\":1}]".getBytes("UTF-8"));
+        }
+        BinaryCatalog.open(file);
+    }
+
+    @Test
+    public void missingFile_opensNothing() throws IOException {
+        assertNull(BinaryCatalog.open(new File(mFolder.getRoot(), "missing.bin")));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.android.baking.data;
+
+import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.utils.AppExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/* Runs background syncs against a local stand-in for the recipe server, on a clock the test moves */
+public class CatalogSyncTest {
+
+    private static final String CATALOG = "[{\"id\":1,\"name\":\"Nutella Pie\",\"servings\":8,\"image\":\"\","
+            + "\"ingredients\":[],\"steps\":[]}]";
+    private static final String UPDATED_CATALOG = CATALOG.replace("Nutella Pie", "Brownies");
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private long mNow = 100 * HOUR;
+    private final List<ChangeSet> mChanged = new ArrayList<>();
+    private CatalogSync mSync;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+
+        GetRecipesService service = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(GetRecipesService.class);
+        Executor direct = new DirectExecutor();
+        RecipeRepository repository = new RecipeRepository(
+                new File(mFolder.getRoot(), RecipeRepository.CATALOG_FILE_NAME), service,
+                new AppExecutors(direct, direct, direct, direct));
+
+        SyncPolicy policy = new SyncPolicy.Builder()
+                .setIntervalMillis(6 * HOUR)
+                .setMaxAttempts(MAX_ATTEMPTS)
+                .setClock(new SyncPolicy.Clock() {
+                    @Override
+                    public long currentTimeMillis() {
+                        return mNow;
+                    }
+                })
+                .build();
+        mSync = new CatalogSync(repository, policy, new CatalogSync.Listener() {
+            @Override
+            public void onCatalogChanged(ChangeSet changes) {
+                mChanged.add(changes);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void firstSync_savesCatalogAndNotifies() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+
+        assertEquals(CatalogSync.Outcome.CHANGED, mSync.run(0, 0));
+
+        assertEquals(1, mChanged.size());
+        assertEquals("Nutella Pie", mChanged.get(0).getRecipes()[0].getName());
+        assertTrue(new File(mFolder.getRoot(), RecipeRepository.CATALOG_FILE_NAME).exists());
+    }
+
+    @Test
+    public void recentSync_isSkippedWithoutRequest() {
+        long lastSync = mNow;
+        mNow += HOUR;
+
+        assertEquals(CatalogSync.Outcome.SKIPPED, mSync.run(lastSync, 0));
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void laterSyncs_notifyOnlyOnChange() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        mSync.run(0, 0);
+        long lastSync = mNow;
+
+        mNow += 6 * HOUR;
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        assertEquals(CatalogSync.Outcome.UNCHANGED, mSync.run(lastSync, 0));
+        lastSync = mNow;
+
+        mNow += 6 * HOUR;
+        mServer.enqueue(new MockResponse().setBody(UPDATED_CATALOG));
+        assertEquals(CatalogSync.Outcome.CHANGED, mSync.run(lastSync, 0));
+
+        assertEquals(2, mChanged.size());
+        assertEquals("Brownies", mChanged.get(1).getRecipes()[0].getName());
+        assertEquals(1, mChanged.get(1).getUpdated().length);
+    }
+
+    @Test
+    public void serverErrors_retryThenWaitForNextPeriod() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) mServer.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals(CatalogSync.Outcome.RETRY, mSync.run(0, 0));
+        assertEquals(CatalogSync.Outcome.RETRY, mSync.run(0, 1));
+        assertEquals(CatalogSync.Outcome.FAILED, mSync.run(0, MAX_ATTEMPTS - 1));
+        assertTrue(mChanged.isEmpty());
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+}
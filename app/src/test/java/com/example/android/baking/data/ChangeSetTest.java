@@ -0,0 +1,59 @@
+package com.example.android.baking.data;
+
+import org.junit.Test;
+
+import static com.example.android.baking.data.TestRecipes.recipe;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/* Works out change sets between catalogs hashed the way the repository hashes them */
+public class ChangeSetTest {
+
+    @Test
+    public void sameCatalog_isEmptyAndKeepsInstances() {
+        Recipe[] previous = hashed(recipe(1, "Pie"), recipe(2, "Brownies"));
+        Recipe[] fresh = hashed(recipe(1, "Pie"), recipe(2, "Brownies"));
+
+        ChangeSet changes = ChangeSet.compare(CatalogHashes.of(previous), fresh, previous);
+
+        assertTrue(changes.isEmpty());
+        assertTrue(changes.follows(previous));
+        assertSame(previous[0], fresh[0]);
+        assertSame(previous[1], fresh[1]);
+    }
+
+    @Test
+    public void addedUpdatedAndRemoved_areReportedSeparately() {
+        Recipe[] previous = hashed(recipe(1, "Pie"), recipe(2, "Brownies"), recipe(3, "Cheesecake"));
+        Recipe[] fresh = hashed(recipe(1, "Pie"), recipe(3, "Lemon Cheesecake"), recipe(4, "Scones"));
+
+        ChangeSet changes = ChangeSet.compare(CatalogHashes.of(previous), fresh, previous);
+
+        assertArrayEquals(new int[]{2}, changes.getAdded());
+        assertArrayEquals(new int[]{1}, changes.getUpdated());
+        assertArrayEquals(new int[]{2}, changes.getRemoved());
+        assertFalse(changes.isReordered());
+        assertEquals(3, changes.size());
+        assertSame(previous[0], changes.getRecipes()[0]);
+    }
+
+    @Test
+    public void movedRecipes_markReordered() {
+        Recipe[] previous = hashed(recipe(1, "Pie"), recipe(2, "Brownies"));
+        Recipe[] fresh = hashed(recipe(2, "Brownies"), recipe(1, "Pie"));
+
+        ChangeSet changes = ChangeSet.compare(CatalogHashes.of(previous), fresh, previous);
+
+        assertEquals(0, changes.size());
+        assertTrue(changes.isReordered());
+        assertFalse(changes.isEmpty());
+    }
+
+    private Recipe[] hashed(Recipe... recipes){
+        BinaryCatalog.encode(recipes);
+        return recipes;
+    }
+}
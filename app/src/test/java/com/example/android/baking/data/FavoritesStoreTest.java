@@ -0,0 +1,180 @@
+package com.example.android.baking.data;
+
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.JsonUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import static com.example.android.baking.data.TestRecipes.recipe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/* Saves favorites through a disk thread the test runs by hand */
+public class FavoritesStoreTest {
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private QueuedExecutor mDiskIO;
+
+    @Before
+    public void setUp() {
+        mDirectory = new File(mFolder.getRoot(), "favorites");
+        mDiskIO = new QueuedExecutor();
+    }
+
+    @Test
+    public void favorites_surviveARestart() {
+        FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        store.add(recipe(2, "Brownies"));
+        mDiskIO.runAll();
+
+        FavoritesStore restarted = newStore();
+        assertTrue(restarted.isFavorite(1));
+        assertEquals(2, restarted.getFavorites().size());
+        assertEquals(JsonUtils.getGson().toJson(recipe(2, "Brownies")), restarted.getLatestJson());
+        assertEquals(JsonUtils.getGson().toJson(recipe(1, "Nutella Pie")), restarted.getRecipeJson(1));
+    }
+
+    @Test
+    public void quickToggles_areWrittenInOneBatch() {
+        FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        store.add(recipe(2, "Brownies"));
+        store.remove(2);
+
+        // Nothing is on disk yet, lookups still see the pending changes
+        assertEquals(1, mDiskIO.mQueue.size());
+        assertFalse(mDirectory.exists());
+        assertEquals(JsonUtils.getGson().toJson(recipe(1, "Nutella Pie")), store.getLatestJson());
+        assertNull(store.getRecipeJson(2));
+
+        mDiskIO.runAll();
+        assertTrue(new File(mDirectory, "recipe_1.json").exists());
+        assertFalse(new File(mDirectory, "recipe_2.json").exists());
+        assertFalse(newStore().isFavorite(2));
+    }
+
+    @Test
+    public void failedRecipeWrite_staysPendingForTheNextBatch() throws Exception {
+        // A directory in the way of the recipe file makes its write fail
+        File blocker = new File(mDirectory, "recipe_1.json");
+        assertTrue(new File(blocker, "in_the_way").mkdirs());
+        FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        mDiskIO.runAll();
+        assertEquals(JsonUtils.getGson().toJson(recipe(1, "Nutella Pie")), store.getRecipeJson(1));
+
+        // Once writes work again the next batch carries the earlier save along
+        assertTrue(new File(blocker, "in_the_way").delete() && blocker.delete());
+        store.add(recipe(2, "Brownies"));
+        mDiskIO.runAll();
+
+        FavoritesStore restarted = newStore();
+        assertEquals(2, restarted.getFavorites().size());
+        assertEquals(JsonUtils.getGson().toJson(recipe(1, "Nutella Pie")), restarted.getRecipeJson(1));
+    }
+
+    @Test
+    public void missingDirectory_keepsTheIndexDirty() throws Exception {
+        // A file where the directory should be stops it from being created
+        assertTrue(mDirectory.createNewFile());
+        FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        mDiskIO.runAll();
+
+        assertTrue(mDirectory.delete());
+        store.flush();
+
+        assertTrue(newStore().isFavorite(1));
+    }
+
+    @Test
+    public void updatedRecipes_replaceOnlyTheirFavorite() {
+        FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        mDiskIO.runAll();
+
+        assertFalse(store.refreshRecipes(Collections.singletonMap(2, recipe(2, "Fudge"))));
+        assertTrue(store.refreshRecipes(Collections.singletonMap(1, recipe(1, "Nutella Pie Deluxe"))));
+        mDiskIO.runAll();
+
+        assertEquals("Nutella Pie Deluxe", newStore().getFavorites().get(0).getName());
+    }
+
+    @Test(timeout = 5000)
+    public void reads_doNotWaitForTheLock() throws Exception {
+        final FavoritesStore store = newStore();
+        store.add(recipe(1, "Nutella Pie"));
+        final CountDownLatch held = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // Stands in for the disk thread reading the index while holding the lock
+        Thread disk = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (store){
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        disk.start();
+        held.await();
+
+        try {
+            assertTrue(store.isLoaded());
+            assertTrue(store.isFavorite(1));
+            assertFalse(store.isFavorite(2));
+            assertEquals(1, store.getFavorites().size());
+        } finally {
+            release.countDown();
+            disk.join();
+        }
+    }
+
+    /* A store with its index read, as after startup */
+    private FavoritesStore newStore(){
+        Executor direct = new DirectExecutor();
+        FavoritesStore store = new FavoritesStore(mDirectory, null, new AppExecutors(mDiskIO, direct, direct, direct));
+        store.loadAsync();
+        mDiskIO.runAll();
+        return store;
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+        final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll(){
+            while (!mQueue.isEmpty()) mQueue.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.android.baking.data;
+
+import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.JsonUtils;
+import com.example.android.baking.utils.NetworkUtils;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/* Pages through catalogs served by a local stand-in for a recipe server that honours offset and
+ * limit, or straight from memory where only the pager itself is under test */
+public class RecipePagerTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int RESIDENT_PAGES = 5;
+    private static final int LARGE_CATALOG = 50000;
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final Gson mGson = JsonUtils.getGson();
+    private MockWebServer mServer;
+    private int mCatalogSize;
+    private boolean mOffline;
+    private boolean mIgnorePaging;
+    private String mNamePrefix = "Recipe ";
+    private RecordingListener mListener;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (mOffline) return new MockResponse().setResponseCode(503);
+                if (mIgnorePaging) return new MockResponse().setBody(mGson.toJson(page(0, mCatalogSize)));
+                HttpUrl url = request.getRequestUrl();
+                int offset = Integer.parseInt(url.queryParameter(NetworkUtils.QUERY_OFFSET));
+                int limit = Integer.parseInt(url.queryParameter(NetworkUtils.QUERY_LIMIT));
+                return new MockResponse().setBody(mGson.toJson(page(offset, limit)));
+            }
+        });
+        mServer.start();
+        mListener = new RecordingListener();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void smallCatalog_fitsInOnePage() {
+        mCatalogSize = 4;
+        RecipePager pager = newPager(mFolder.getRoot());
+
+        pager.start();
+
+        assertEquals(4, pager.getCount());
+        assertEquals(4, mListener.mInserted);
+        assertEquals("Recipe 3", pager.get(3).getName());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void nearPageEnd_prefetchesNextPage() {
+        mCatalogSize = 100;
+        RecipePager pager = newPager(mFolder.getRoot());
+        pager.start();
+        assertEquals(PAGE_SIZE, pager.getCount());
+
+        pager.get(PAGE_SIZE - 1);
+
+        assertEquals(2 * PAGE_SIZE, pager.getCount());
+        assertNotNull(pager.get(PAGE_SIZE));
+    }
+
+    @Test
+    public void scrollingLargeCatalog_keepsMemoryFlat() {
+        mCatalogSize = LARGE_CATALOG;
+        // Served from memory, tens of thousands of http round trips would only slow the test down
+        final int[] requests = new int[1];
+        RecipePager.PageSource source = new RecipePager.PageSource() {
+            @Override
+            public Recipe[] loadPage(int offset, int limit) {
+                requests[0]++;
+                return page(offset, limit);
+            }
+        };
+        Executor direct = new DirectExecutor();
+        RecipePager pager = new RecipePager(source, mFolder.getRoot(),
+                new AppExecutors(direct, direct, direct, direct), PAGE_SIZE, RESIDENT_PAGES);
+        pager.start();
+
+        int maxResident = 0;
+        for (int position = 0; position < pager.getCount(); position++){
+            assertEquals("Recipe " + position, pager.get(position).getName());
+            maxResident = Math.max(maxResident, pager.getResidentPageCount());
+        }
+
+        assertEquals(LARGE_CATALOG, pager.getCount());
+        assertTrue(maxResident <= RESIDENT_PAGES);
+        // Every page fetched once, plus the empty page that ends the catalog
+        assertEquals(LARGE_CATALOG / PAGE_SIZE + 1, requests[0]);
+    }
+
+    @Test
+    public void serverIgnoringPaging_isAskedOnce() {
+        mCatalogSize = 1000;
+        mIgnorePaging = true;
+        RecipePager pager = newPager(mFolder.getRoot());
+        pager.start();
+
+        int maxResident = 0;
+        for (int position = 0; position < pager.getCount(); position++){
+            assertEquals("Recipe " + position, pager.get(position).getName());
+            maxResident = Math.max(maxResident, pager.getResidentPageCount());
+        }
+
+        assertEquals(1000, pager.getCount());
+        assertTrue(maxResident <= RESIDENT_PAGES);
+        // The first page brought the whole catalog, every other page was cut from its saved copy
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void serverIgnoringPaging_catalogOfOnePage_endsAfterIt() {
+        mCatalogSize = PAGE_SIZE;
+        mIgnorePaging = true;
+        RecipePager pager = newPager(mFolder.getRoot());
+        pager.start();
+
+        for (int position = 0; position < pager.getCount(); position++) pager.get(position);
+
+        // The next page repeats the first one, which ends the list instead of showing it again
+        assertEquals(PAGE_SIZE, pager.getCount());
+        assertEquals(PAGE_SIZE, mListener.mInserted);
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void droppedPage_comesBackFromDisk() {
+        mCatalogSize = 1000;
+        RecipePager pager = newPager(mFolder.getRoot());
+        pager.start();
+        for (int position = 0; position < 10 * PAGE_SIZE; position++) pager.get(position);
+        int requests = mServer.getRequestCount();
+
+        // Page zero was dropped, coming back to it reads the saved page instead of the network
+        assertEquals("Recipe 0", pager.get(0).getName());
+        assertEquals(requests, mServer.getRequestCount());
+    }
+
+    @Test
+    public void offline_showsSavedPages() {
+        mCatalogSize = 100;
+        File pagesDir = mFolder.getRoot();
+        newPager(pagesDir).start();
+
+        mOffline = true;
+        RecipePager pager = newPager(pagesDir);
+        pager.start();
+
+        assertEquals(PAGE_SIZE, pager.getCount());
+        assertNull(mListener.mError);
+    }
+
+    @Test
+    public void savedFirstPage_isShownWithoutTheNetwork() {
+        mCatalogSize = 100;
+        File pagesDir = mFolder.getRoot();
+        newPager(pagesDir).start();
+        int requests = mServer.getRequestCount();
+
+        // Network work is held back, so only the page store can fill the first screen
+        QueuedExecutor network = new QueuedExecutor();
+        RecipePager pager = newPager(pagesDir, network);
+        RecordingListener listener = new RecordingListener();
+        pager.setListener(listener);
+        pager.start();
+
+        assertEquals(PAGE_SIZE, pager.getCount());
+        assertEquals(PAGE_SIZE, listener.mInserted);
+        assertEquals("Recipe 0", pager.get(0).getName());
+        assertEquals(requests, mServer.getRequestCount());
+        // The page is still revalidated once the network runs
+        network.runAll();
+        assertEquals(requests + 1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void changedCatalog_replacesSavedPages() {
+        mCatalogSize = 100;
+        File pagesDir = mFolder.getRoot();
+        RecipePager first = newPager(pagesDir);
+        first.start();
+        first.get(PAGE_SIZE);
+
+        mNamePrefix = "Changed ";
+        RecipePager.invalidatePages(pagesDir, page(0, mCatalogSize));
+
+        // The new first page is saved, the page cut from the old catalog is gone rather than shown
+        mOffline = true;
+        RecipePager pager = newPager(pagesDir);
+        pager.start();
+        assertEquals("Changed 0", pager.get(0).getName());
+        assertNull(pager.get(PAGE_SIZE));
+    }
+
+    @Test
+    public void coldStart_offline_reportsUnavailable() {
+        mOffline = true;
+        RecipePager pager = newPager(mFolder.getRoot());
+
+        pager.start();
+
+        assertEquals(0, pager.getCount());
+        assertNotNull(mListener.mError);
+    }
+
+    private RecipePager newPager(File pagesDir){
+        return newPager(pagesDir, new DirectExecutor());
+    }
+
+    private RecipePager newPager(File pagesDir, Executor network){
+        GetRecipesService service = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(mGson))
+                .build()
+                .create(GetRecipesService.class);
+        Executor direct = new DirectExecutor();
+        RecipePager pager = new RecipePager(new RecipePager.ServicePageSource(service, pagesDir), pagesDir,
+                new AppExecutors(direct, network, direct, direct), PAGE_SIZE, RESIDENT_PAGES);
+        pager.setListener(mListener);
+        return pager;
+    }
+
+    private Recipe[] page(int offset, int limit){
+        int size = Math.max(0, Math.min(limit, mCatalogSize - offset));
+        Recipe[] recipes = new Recipe[size];
+        for (int i = 0; i < size; i++) recipes[i] = TestRecipes.recipe(offset + i + 1, mNamePrefix + (offset + i));
+        return recipes;
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    /* Holds network work back so the test decides when requests run */
+    private static class QueuedExecutor implements Executor {
+        final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll(){
+            while (!mQueue.isEmpty()) mQueue.remove(0).run();
+        }
+    }
+
+    private static class RecordingListener implements RecipePager.Listener {
+        int mInserted;
+        Throwable mError;
+
+        @Override
+        public void onItemsInserted(int positionStart, int itemCount) {
+            mInserted += itemCount;
+        }
+
+        @Override
+        public void onItemsChanged(int positionStart, int itemCount) {}
+
+        @Override
+        public void onItemsRemoved(int positionStart, int itemCount) {}
+
+        @Override
+        public void onFirstPageUnavailable(Throwable t) {
+            mError = t;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.android.baking.data;
+
+import com.example.android.baking.services.GetRecipesService;
+import com.example.android.baking.utils.AppExecutors;
+import com.example.android.baking.utils.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/* Runs the repository against a local stand-in for the recipe server */
+public class RecipeRepositoryTest {
+
+    private static final String CATALOG = "[{\"id\":1,\"name\":\"Nutella Pie\",\"servings\":8,\"image\":\"\","
+            + "\"ingredients\":[{\"quantity\":2,\"measure\":\"CUP\",\"ingredient\":\"Graham Cracker crumbs\"}],"
+            + "\"steps\":[{\"id\":0,\"shortDescription\":\"Recipe Introduction\",\"description\":\"Recipe Introduction\","
+            + "\"videoURL\":\"\",\"thumbnailURL\":\"\"}]}]";
+
+    private static final String ETAG = "\"catalog-v1\"";
+
+    private static final String UPDATED_CATALOG = CATALOG.replace("Nutella Pie", "Brownies");
+
+    private static final String TWO_RECIPES = CATALOG.substring(0, CATALOG.length() - 1) + ","
+            + CATALOG.substring(1).replace("\"id\":1", "\"id\":2").replace("Nutella Pie", "Brownies");
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private File mCatalogFile;
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mCatalogFile = new File(mFolder.getRoot(), RecipeRepository.CATALOG_FILE_NAME);
+        mCallback = new RecordingCallback();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void coldStart_loadsFromNetworkAndPersists() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+
+        newRepository().loadRecipes(mCallback);
+
+        assertEquals(1, mCallback.mLoaded.size());
+        assertEquals("Nutella Pie", mCallback.mLoaded.get(0)[0].getName());
+        assertTrue(mCatalogFile.exists());
+    }
+
+    @Test
+    public void warmStart_offline_servesSavedCatalog() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        newRepository().loadRecipes(new RecordingCallback());
+
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        newRepository().loadRecipes(mCallback);
+
+        assertEquals(1, mCallback.mLoaded.size());
+        assertEquals("Nutella Pie", mCallback.mLoaded.get(0)[0].getName());
+        assertNull(mCallback.mError);
+    }
+
+    @Test
+    public void unchangedRefresh_doesNotRedeliver() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        newRepository().loadRecipes(new RecordingCallback());
+
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        newRepository().loadRecipes(mCallback);
+
+        assertEquals(1, mCallback.mLoaded.size());
+    }
+
+    @Test
+    public void savedCatalog_isRevalidatedWithItsOwnETag() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(CATALOG));
+        newRepository().loadRecipes(new RecordingCallback());
+
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+        newRepository().loadRecipes(mCallback);
+
+        assertNull(mServer.takeRequest().getHeader(NetworkUtils.HEADER_IF_NONE_MATCH));
+        assertEquals(ETAG, mServer.takeRequest().getHeader(NetworkUtils.HEADER_IF_NONE_MATCH));
+        assertEquals(1, mCallback.mLoaded.size());
+        assertNull(mCallback.mError);
+    }
+
+    @Test
+    public void catalogGoneFromDisk_isFetchedInFull() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(CATALOG));
+        RecipeRepository repository = newRepository();
+        repository.loadRecipes(mCallback);
+        assertTrue(mCatalogFile.delete());
+
+        // The catalog is still in memory, but only the copy on disk may be revalidated
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(UPDATED_CATALOG));
+        repository.loadRecipes(mCallback);
+
+        mServer.takeRequest();
+        assertNull(mServer.takeRequest().getHeader(NetworkUtils.HEADER_IF_NONE_MATCH));
+        assertEquals("Brownies", mCallback.mLoaded.get(mCallback.mLoaded.size() - 1)[0].getName());
+        assertTrue(mCatalogFile.exists());
+    }
+
+    @Test
+    public void changedRefresh_redeliversNewCatalog() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        newRepository().loadRecipes(new RecordingCallback());
+
+        mServer.enqueue(new MockResponse().setBody(UPDATED_CATALOG));
+        newRepository().loadRecipes(mCallback);
+
+        assertEquals(2, mCallback.mLoaded.size());
+        assertEquals("Nutella Pie", mCallback.mLoaded.get(0)[0].getName());
+        assertEquals("Brownies", mCallback.mLoaded.get(1)[0].getName());
+    }
+
+    @Test
+    public void changedRefresh_deliversOnlyTheChangedRecipe() {
+        mServer.enqueue(new MockResponse().setBody(TWO_RECIPES));
+        RecipeRepository repository = newRepository();
+        repository.loadRecipes(mCallback);
+
+        mServer.enqueue(new MockResponse().setBody(TWO_RECIPES.replace("Brownies", "Fudge Brownies")));
+        repository.loadRecipes(mCallback);
+
+        ChangeSet changes = mCallback.mChanges.get(mCallback.mChanges.size() - 1);
+        assertArrayEquals(new int[]{1}, changes.getUpdated());
+        assertEquals(1, changes.size());
+        Recipe[] recipes = changes.getRecipes();
+        assertEquals("Fudge Brownies", recipes[1].getName());
+        // The recipe that did not change is handed out as the same instance
+        assertSame(mCallback.mLoaded.get(0)[0], recipes[0]);
+    }
+
+    @Test
+    public void lookupAfterRestart_decodesOnlyThatRecipe() {
+        mServer.enqueue(new MockResponse().setBody(TWO_RECIPES));
+        newRepository().loadRecipes(new RecordingCallback());
+
+        RecipeRepository restarted = newRepository();
+        assertEquals("Brownies", restarted.getRecipe(2).getName());
+        // The catalog itself is still left for loadRecipes
+        assertNull(restarted.getCachedRecipes());
+    }
+
+    @Test
+    public void lookup_leavesJsonCatalogForLoadRecipes() throws Exception {
+        File legacyCatalog = new File(mFolder.getRoot(), "recipe_catalog.json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(legacyCatalog), "UTF-8")){
+            writer.write(CATALOG);
+        }
+
+        assertNull(newRepository().getRecipe(1));
+        assertTrue(legacyCatalog.exists());
+        assertFalse(mCatalogFile.exists());
+    }
+
+    @Test
+    public void coldStart_offline_reportsUnavailable() {
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+
+        newRepository().loadRecipes(mCallback);
+
+        assertTrue(mCallback.mLoaded.isEmpty());
+        assertTrue(mCallback.mError != null);
+    }
+
+    @Test
+    public void concurrentCallers_shareOneRequest() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        QueuedExecutor network = new QueuedExecutor();
+        RecipeRepository repository = newRepository(network);
+        RecordingCallback other = new RecordingCallback();
+
+        repository.loadRecipes(mCallback);
+        repository.loadRecipes(other);
+        network.runAll();
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, mCallback.mLoaded.size());
+        assertEquals(1, other.mLoaded.size());
+    }
+
+    @Test
+    public void lastCallerRemoved_cancelsRefresh() {
+        mServer.enqueue(new MockResponse().setBody(CATALOG));
+        QueuedExecutor network = new QueuedExecutor();
+        RecipeRepository repository = newRepository(network);
+
+        repository.loadRecipes(mCallback);
+        repository.removeCallback(mCallback);
+        network.runAll();
+
+        assertEquals(0, mServer.getRequestCount());
+        assertTrue(mCallback.mLoaded.isEmpty());
+        assertNull(mCallback.mError);
+    }
+
+    private RecipeRepository newRepository(){
+        return newRepository(new DirectExecutor());
+    }
+
+    private RecipeRepository newRepository(Executor network){
+        GetRecipesService service = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(GetRecipesService.class);
+        Executor direct = new DirectExecutor();
+        return new RecipeRepository(mCatalogFile, service, new AppExecutors(direct, network, direct, direct));
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    /* Holds network work back so the test decides when requests run */
+    private static class QueuedExecutor implements Executor {
+        final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll(){
+            while (!mQueue.isEmpty()) mQueue.remove(0).run();
+        }
+    }
+
+    private static class RecordingCallback implements RecipeRepository.RecipesCallback {
+        final List<Recipe[]> mLoaded = new ArrayList<>();
+        final List<ChangeSet> mChanges = new ArrayList<>();
+        Throwable mError;
+
+        @Override
+        public void onRecipesLoaded(Recipe[] recipes, ChangeSet changes) {
+            mLoaded.add(recipes);
+            mChanges.add(changes);
+        }
+
+        @Override
+        public void onRecipesUnavailable(Throwable t) {
+            mError = t;
+        }
+    }
+}
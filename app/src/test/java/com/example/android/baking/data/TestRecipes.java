@@ -0,0 +1,86 @@
+package com.example.android.baking.data;
+
+/* Recipes built in code for the unit tests, shaped like the recipe feed */
+public final class TestRecipes {
+
+    private static final int INGREDIENTS_PER_RECIPE = 10;
+    private static final int STEPS_PER_RECIPE = 12;
+
+    private TestRecipes(){}
+
+    /* A recipe for eight servings with neither ingredients nor steps */
+    public static Recipe recipe(int id, String name){
+        return recipe(id, name, new Ingredient[0], new Step[0]);
+    }
+
+    /* A recipe for eight servings with the given ingredients and no steps */
+    public static Recipe recipe(int id, String name, Ingredient... ingredients){
+        return recipe(id, name, ingredients, new Step[0]);
+    }
+
+    /* A recipe with one cup of a single ingredient and a single step */
+    public static Recipe recipe(int id, String name, String ingredientName, String description){
+        return recipe(id, name, new Ingredient[]{ingredient(ingredientName)}, new Step[]{step(0, description)});
+    }
+
+    public static Recipe recipe(int id, String name, Ingredient[] ingredients, Step[] steps){
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName(name);
+        recipe.setServings(8);
+        recipe.setImage("");
+        recipe.setIngredients(ingredients);
+        recipe.setSteps(steps);
+        return recipe;
+    }
+
+    /* One cup of each named ingredient */
+    public static Ingredient[] ingredients(String... names){
+        Ingredient[] ingredients = new Ingredient[names.length];
+        for (int i = 0; i < names.length; i++) ingredients[i] = ingredient(names[i]);
+        return ingredients;
+    }
+
+    public static Ingredient ingredient(String name){
+        return ingredient(1, "CUP", name);
+    }
+
+    public static Ingredient ingredient(double quantity, String measure, String name){
+        Ingredient ingredient = new Ingredient();
+        ingredient.setQuantity(quantity);
+        ingredient.setMeasure(measure);
+        ingredient.setIngredient(name);
+        return ingredient;
+    }
+
+    /* A step without video, its description may be null */
+    public static Step step(int id, String description){
+        Step step = new Step();
+        step.setId(id);
+        step.setShortDescription("Step");
+        step.setDescription(description);
+        step.setVideoURL("");
+        step.setThumbnailURL("");
+        return step;
+    }
+
+    /* A generated catalog of ten ingredients and twelve steps a recipe, with ids from 1 */
+    public static Recipe[] catalog(int size){
+        Recipe[] recipes = new Recipe[size];
+        for (int i = 0; i < size; i++){
+            Ingredient[] ingredients = new Ingredient[INGREDIENTS_PER_RECIPE];
+            for (int j = 0; j < ingredients.length; j++)
+                ingredients[j] = ingredient(j + 0.5, "CUP", "Ingredient " + j);
+
+            Step[] steps = new Step[STEPS_PER_RECIPE];
+            for (int j = 0; j < steps.length; j++){
+                Step step = step(j, j + ". Preheat the oven to 350°F and butter a 9\" deep dish pie pan.");
+                step.setShortDescription("Step " + j);
+                step.setVideoURL(j % 2 == 0 ? "https://example.com/step" + j + ".mp4" : "");
+                steps[j] = step;
+            }
+            recipes[i] = recipe(i + 1, "Recipe " + i, ingredients, steps);
+        }
+        return recipes;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.android.baking.json;
+
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.TestRecipes;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/* Checks the streaming adapters read and write the same json as the reflective Gson path.
+ * Decoding speed is measured by CatalogDecodeBenchmark in the benchmarks module. */
+public class RecipeJsonTest {
+
+    private static final int RECIPES = 2000;
+
+    @Test
+    public void streamingOutput_matchesReflectiveOutput() {
+        Gson reflective = new Gson();
+        Gson streaming = JsonUtils.getGson();
+        String json = reflective.toJson(TestRecipes.catalog(RECIPES));
+
+        Recipe[] fromReflective = reflective.fromJson(json, Recipe[].class);
+        Recipe[] fromStreaming = streaming.fromJson(json, Recipe[].class);
+
+        assertEquals(json, streaming.toJson(fromReflective));
+        assertEquals(json, reflective.toJson(fromStreaming));
+    }
+}
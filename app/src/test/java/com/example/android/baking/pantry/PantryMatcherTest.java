@@ -0,0 +1,99 @@
+package com.example.android.baking.pantry;
+
+import com.example.android.baking.data.Recipe;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.android.baking.data.TestRecipes.ingredients;
+import static com.example.android.baking.data.TestRecipes.recipe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PantryMatcherTest {
+
+    private static final int LARGE_CATALOG = 50000;
+    private static final int LARGE_VOCABULARY = 5000;
+
+    private PantryMatcher mMatcher;
+
+    @Before
+    public void setUp() {
+        mMatcher = new PantryMatcher(new Recipe[]{
+                recipe(1, "Nutella Pie", ingredients("Graham Cracker crumbs", "unsalted butter", "granulated sugar", "salt", "Nutella")),
+                recipe(2, "Brownies", ingredients("Bittersweet chocolate", "unsalted butter", "granulated sugar", "eggs", "salt")),
+                recipe(3, "Yellow Cake", ingredients("sifted cake flour", "granulated sugar", "eggs", "Unsalted Butter"))});
+    }
+
+    @Test
+    public void fullCoverage_ranksFirst() {
+        List<PantryMatch> matches = mMatcher.match(
+                mMatcher.pantryOf(Arrays.asList("flour", "sugar", "eggs", "butter")), 10);
+
+        assertEquals(3, matches.get(0).getRecipe().getId());
+        assertEquals(4, matches.get(0).getCovered());
+        assertTrue(matches.get(0).getMissing().isEmpty());
+    }
+
+    @Test
+    public void missingIngredients_areReported() {
+        List<PantryMatch> matches = mMatcher.match(mMatcher.pantryOf(Arrays.asList("butter", "sugar", "salt")), 10);
+
+        // Nutella pie and brownies both have 3 of 5, the pie is earlier in the catalog
+        assertEquals(1, matches.get(0).getRecipe().getId());
+        assertEquals(Arrays.asList("graham cracker crumbs", "nutella"), sorted(matches.get(0).getMissing()));
+        assertEquals(3, matches.get(0).getCovered());
+        assertEquals(5, matches.get(0).getTotal());
+        assertEquals(2, matches.get(1).getRecipe().getId());
+        // The cake only has 2 of 4
+        assertEquals(3, matches.get(2).getRecipe().getId());
+    }
+
+    @Test
+    public void specificItem_doesNotCoverGeneralIngredient() {
+        PantryMatcher matcher = new PantryMatcher(new Recipe[]{recipe(1, "Shortbread", ingredients("butter", "flour"))});
+        assertEquals(0, matcher.match(matcher.pantryOf(Arrays.asList("unsalted butter")), 10).size());
+        assertEquals(1, matcher.match(matcher.pantryOf(Arrays.asList("Butter")), 10).get(0).getCovered());
+    }
+
+    @Test
+    public void noOverlap_matchesNothing() {
+        assertEquals(0, mMatcher.match(mMatcher.pantryOf(Arrays.asList("anchovies")), 10).size());
+    }
+
+    @Test
+    public void largeCatalog_returnsTheLimit() {
+        // Match speed is measured by PantryMatchBenchmark in the benchmarks module
+        Random random = new Random(42);
+        Recipe[] recipes = new Recipe[LARGE_CATALOG];
+        for (int i = 0; i < recipes.length; i++){
+            String[] names = new String[9];
+            for (int j = 0; j < names.length; j++) names[j] = "ingredient " + skewed(random);
+            recipes[i] = recipe(i, "Recipe " + i, ingredients(names));
+        }
+        PantryMatcher matcher = new PantryMatcher(recipes);
+
+        List<String> pantry = new ArrayList<>();
+        for (int i = 0; i < 200; i++) pantry.add("ingredient " + skewed(random));
+        List<PantryMatch> matches = matcher.match(matcher.pantryOf(pantry), 50);
+
+        assertEquals(50, matches.size());
+    }
+
+    /* Most recipes share a few common ingredients, like real catalogs */
+    private static int skewed(Random random){
+        double u = random.nextDouble();
+        return (int) (LARGE_VOCABULARY * u * u * u);
+    }
+
+    private static List<String> sorted(List<String> values){
+        List<String> copy = new ArrayList<>(values);
+        java.util.Collections.sort(copy);
+        return copy;
+    }
+}
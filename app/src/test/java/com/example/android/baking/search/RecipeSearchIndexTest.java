@@ -0,0 +1,115 @@
+package com.example.android.baking.search;
+
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.TestRecipes;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.android.baking.data.TestRecipes.recipe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecipeSearchIndexTest {
+
+    private RecipeSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new RecipeSearchIndex();
+        mIndex.update(new Recipe[]{
+                recipe(1, "Nutella Pie", "Graham Cracker crumbs", "Press the crust into the pan."),
+                recipe(2, "Brownies", "Bittersweet chocolate", "Melt the chocolate and butter."),
+                recipe(3, "Crème Brûlée", "Heavy cream", "Caramelize the sugar with a torch."),
+                recipe(4, "Cheesecake", "Cream cheese", "Bake the cheesecake in a water bath."),
+                recipe(5, "Chocolate Cake", "Flour", "Mix the batter.")});
+    }
+
+    @Test
+    public void emptyQuery_returnsNull() {
+        assertNull(mIndex.search("  "));
+    }
+
+    @Test
+    public void lastWord_matchesAsPrefix() {
+        assertEquals(Arrays.asList(2), ids(mIndex.search("brown")));
+    }
+
+    @Test
+    public void accents_areIgnored() {
+        assertEquals(Arrays.asList(3), ids(mIndex.search("creme brulee")));
+        assertEquals(Arrays.asList(3), ids(mIndex.search("CRÈME")));
+    }
+
+    @Test
+    public void everyWord_mustMatch() {
+        assertEquals(Arrays.asList(2), ids(mIndex.search("chocolate butter")));
+        assertEquals(0, mIndex.search("chocolate torch").length);
+    }
+
+    @Test
+    public void nameMatches_outrankIngredientAndStepMatches() {
+        // Chocolate Cake has it in its name, the brownies only in an ingredient and a step
+        assertEquals(Arrays.asList(5, 2), ids(mIndex.search("chocolate")));
+        // Equal scores keep catalog order
+        assertEquals(Arrays.asList(3, 4), ids(mIndex.search("cream")));
+    }
+
+    @Test
+    public void update_reindexesChangedAndDropsRemovedRecipes() {
+        mIndex.update(new Recipe[]{
+                recipe(1, "Nutella Pie", "Graham Cracker crumbs", "Press the crust into the pan."),
+                recipe(2, "Blondies", "White chocolate", "Melt the chocolate and butter.")});
+
+        assertEquals(0, mIndex.search("brownies").length);
+        assertEquals(Arrays.asList(2), ids(mIndex.search("blond")));
+        assertEquals(0, mIndex.search("cheesecake").length);
+        assertEquals(Arrays.asList(1), ids(mIndex.search("nutella")));
+    }
+
+    @Test
+    public void olderUpdate_landingLate_isDropped() {
+        int older = mIndex.nextGeneration();
+        int newer = mIndex.nextGeneration();
+        Recipe[] renamed = new Recipe[]{recipe(2, "Blondies", "White chocolate", "Melt the chocolate and butter.")};
+        Recipe[] stale = new Recipe[]{recipe(2, "Brownies", "Bittersweet chocolate", "Melt the chocolate and butter.")};
+
+        assertTrue(mIndex.update(newer, renamed, null));
+        assertFalse(mIndex.update(older, stale, null));
+
+        assertEquals(Arrays.asList(2), ids(mIndex.search("blond")));
+        assertEquals(0, mIndex.search("brownies").length);
+    }
+
+    @Test
+    public void updatedRecipe_keepsItsCatalogPlaceAmongEqualScores() {
+        // Crème Brûlée is reindexed into a newer slot than the cheesecake but still comes first
+        mIndex.update(new Recipe[]{
+                recipe(1, "Nutella Pie", "Graham Cracker crumbs", "Press the crust into the pan."),
+                recipe(2, "Brownies", "Bittersweet chocolate", "Melt the chocolate and butter."),
+                recipe(3, "Crème Brûlée", "Heavy cream", "Torch the sugar until it caramelizes."),
+                recipe(4, "Cheesecake", "Cream cheese", "Bake the cheesecake in a water bath."),
+                recipe(5, "Chocolate Cake", "Flour", "Mix the batter.")});
+
+        assertEquals(Arrays.asList(3, 4), ids(mIndex.search("cream")));
+    }
+
+    @Test
+    public void largeCatalog_findsTheLastRecipe() {
+        // Query speed is measured by RecipeSearchBenchmark in the benchmarks module
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        index.update(TestRecipes.catalog(20000));
+        assertEquals(Arrays.asList(20000), ids(index.search("recipe 19999")));
+    }
+
+    private static List<Integer> ids(Recipe[] recipes){
+        Integer[] ids = new Integer[recipes.length];
+        for (int i = 0; i < recipes.length; i++) ids[i] = recipes[i].getId();
+        return Arrays.asList(ids);
+    }
+}
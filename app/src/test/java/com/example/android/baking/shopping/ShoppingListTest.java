@@ -0,0 +1,96 @@
+package com.example.android.baking.shopping;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.TestRecipes;
+
+import org.junit.Test;
+
+import static com.example.android.baking.data.TestRecipes.ingredient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShoppingListTest {
+
+    private static final double DELTA = 1e-9;
+    private static final int PLAN_RECIPES = 48;
+    private static final int PLAN_SERVINGS = 400;
+
+    @Test
+    public void servings_scaleQuantities() {
+        Recipe cake = recipe(1, 8, ingredient(2, "CUP", "flour"));
+
+        Ingredient[] list = new ShoppingList().add(cake, 4).build();
+
+        assertEquals(1, list.length);
+        assertEquals(1, list[0].getQuantity(), DELTA);
+        assertEquals("CUP", list[0].getMeasure());
+    }
+
+    @Test
+    public void sameIngredient_mergesAcrossMeasuresAndRecipes() {
+        Recipe pie = recipe(1, 8, ingredient(8, "TBLSP", "Unsalted butter"));
+        Recipe brownies = recipe(2, 8, ingredient(0.5, "CUP", "unsalted  butter"), ingredient(6, "TSP", "salt"));
+
+        Ingredient[] list = new ShoppingList().add(pie, 8).add(brownies, 8).build();
+
+        assertEquals(2, list.length);
+        assertEquals("salt", list[0].getIngredient());
+        assertEquals(2, list[0].getQuantity(), DELTA);
+        assertEquals("TBLSP", list[0].getMeasure());
+        assertEquals("Unsalted butter", list[1].getIngredient());
+        assertEquals(1, list[1].getQuantity(), DELTA);
+        assertEquals("CUP", list[1].getMeasure());
+    }
+
+    @Test
+    public void metricMass_movesToKilograms() {
+        Recipe cheesecake = recipe(1, 8, ingredient(250, "G", "cream cheese"), ingredient(1, "K", "Cream Cheese"));
+
+        Ingredient[] list = new ShoppingList().add(cheesecake, 8).build();
+
+        assertEquals(1.25, list[0].getQuantity(), DELTA);
+        assertEquals("K", list[0].getMeasure());
+    }
+
+    @Test
+    public void differentDimensions_stayApart() {
+        Recipe recipe = recipe(1, 8, ingredient(1, "CUP", "sugar"), ingredient(100, "G", "sugar"),
+                ingredient(2, "PINCH", "sugar"), ingredient(3, "PINCH", "sugar"));
+
+        Ingredient[] list = new ShoppingList().add(recipe, 8).build();
+
+        assertEquals(3, list.length);
+        assertEquals(5, list[2].getQuantity(), DELTA);
+        assertEquals("PINCH", list[2].getMeasure());
+    }
+
+    @Test
+    public void productionPlan_mergesEachNameAndDimensionOnce() {
+        Recipe[] recipes = new Recipe[PLAN_RECIPES];
+        String[] measures = {"CUP", "TBLSP", "TSP", "K", "G", "OZ", "UNIT"};
+        for (int i = 0; i < recipes.length; i++){
+            Ingredient[] ingredients = new Ingredient[9];
+            for (int j = 0; j < ingredients.length; j++)
+                ingredients[j] = ingredient(0.25 * (j + 1), measures[(i + j) % measures.length], "Ingredient " + ((i + j) % 40));
+            recipes[i] = recipe(i, 8, ingredients);
+        }
+
+        // Merge speed is measured by ShoppingListBenchmark in the benchmarks module
+        Ingredient[] list = plan(recipes);
+        // Forty names, each in at most three dimensions
+        assertTrue(list.length <= 40 * 3);
+    }
+
+    private static Ingredient[] plan(Recipe[] recipes){
+        ShoppingList list = new ShoppingList();
+        for (Recipe recipe : recipes) list.add(recipe, PLAN_SERVINGS);
+        return list.build();
+    }
+
+    private static Recipe recipe(int id, int servings, Ingredient... ingredients){
+        Recipe recipe = TestRecipes.recipe(id, "Recipe " + id, ingredients);
+        recipe.setServings(servings);
+        return recipe;
+    }
+}
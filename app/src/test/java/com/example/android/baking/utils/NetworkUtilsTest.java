@@ -0,0 +1,95 @@
+package com.example.android.baking.utils;
+
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/* Checks the http cache revalidates against a local stand-in server and counts the savings */
+public class NetworkUtilsTest {
+
+    private static final String ETAG = "\"catalog-v1\"";
+
+    @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mClient = NetworkUtils.buildClient(mFolder.newFolder("http"), 1024 * 1024);
+        NetworkUtils.resetCacheStats();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void unchangedCatalog_costsA304() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody("[]"));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        fetch(null).body().string();
+        Response second = fetch(null);
+
+        assertEquals("[]", second.body().string());
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+        RecordedRequest revalidation = mServer.takeRequest();
+        assertEquals(ETAG, revalidation.getHeader("If-None-Match"));
+        assertEquals("gzip", revalidation.getHeader("Accept-Encoding"));
+        assertEquals(1, NetworkUtils.getCacheMissCount());
+        assertEquals(1, NetworkUtils.getCacheRevalidationCount());
+    }
+
+    @Test
+    public void callerValidators_getThe304Back() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody("[]"));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        fetch(null).body().string();
+        Response second = fetch(ETAG);
+
+        // The caller asked about the copy it saved, not the one in the http cache
+        assertEquals(304, second.code());
+        mServer.takeRequest();
+        assertEquals(ETAG, mServer.takeRequest().getHeader(NetworkUtils.HEADER_IF_NONE_MATCH));
+        assertEquals(1, NetworkUtils.getCacheRevalidationCount());
+    }
+
+    @Test
+    public void changedCatalog_isDownloadedAgain() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody("[]"));
+        mServer.enqueue(new MockResponse().setHeader("ETag", "\"catalog-v2\"").setBody("[{}]"));
+
+        fetch(null).body().string();
+        Response second = fetch(ETAG);
+
+        assertEquals(200, second.code());
+        assertEquals("[{}]", second.body().string());
+        assertEquals(2, NetworkUtils.getCacheMissCount());
+        assertEquals(0, NetworkUtils.getCacheRevalidationCount());
+    }
+
+    private Response fetch(@Nullable String ifNoneMatch) throws Exception {
+        Request.Builder builder = new Request.Builder().url(mServer.url("/" + NetworkUtils.RECIPES_ENDPOINT));
+        if (ifNoneMatch != null) builder.header(NetworkUtils.HEADER_IF_NONE_MATCH, ifNoneMatch);
+        return mClient.newCall(builder.build()).execute();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.android.baking.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class QuantityFormatterTest {
+
+    @Test
+    public void wholeNumbers_haveNoDecimals() {
+        assertEquals("0", QuantityFormatter.format(0));
+        assertEquals("2", QuantityFormatter.format(2.0));
+        assertEquals("400", QuantityFormatter.format(400));
+    }
+
+    @Test
+    public void commonFractions_useGlyphs() {
+        assertEquals("½", QuantityFormatter.format(0.5));
+        assertEquals("1¼", QuantityFormatter.format(1.25));
+        assertEquals("⅓", QuantityFormatter.format(0.333));
+        assertEquals("2⅔", QuantityFormatter.format(2.6667));
+        assertEquals("40⅞", QuantityFormatter.format(40.875));
+    }
+
+    @Test
+    public void otherAmounts_keepTwoDecimals() {
+        assertEquals("0.2", QuantityFormatter.format(0.2));
+        assertEquals("12.06", QuantityFormatter.format(12.06));
+        assertEquals("1234", QuantityFormatter.format(1234.4));
+    }
+
+    @Test
+    public void cachedAmounts_areNotRebuilt() {
+        assertSame(QuantityFormatter.format(1.5), QuantityFormatter.format(1.5));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.android.baking.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/* Drives the scheduler with a clock and disk thread the test moves by hand */
+public class WidgetUpdateSchedulerTest {
+
+    private static final long DEBOUNCE = 250;
+    private static final long MAX_DELAY = 1000;
+
+    private final FakeTimer mTimer = new FakeTimer();
+    private final List<int[]> mRendered = new ArrayList<>();
+    private final List<Runnable> mDiskQueue = new ArrayList<>();
+    private boolean mRenderFails;
+    private WidgetUpdateScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new WidgetUpdateScheduler(new WidgetUpdateScheduler.Renderer() {
+            @Override
+            public int render(int[] appWidgetIds) {
+                if (mRenderFails) throw new IllegalStateException("Unreadable pin");
+                mRendered.add(appWidgetIds);
+                return appWidgetIds == null ? 0 : appWidgetIds.length;
+            }
+        }, mTimer, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mDiskQueue.add(command);
+            }
+        }, DEBOUNCE, MAX_DELAY);
+    }
+
+    @Test
+    public void burstOfRequests_runsOnePassOverEveryWidgetAskedFor() {
+        mScheduler.request(new int[]{1}, null);
+        mTimer.advance(100);
+        mScheduler.request(new int[]{2, 1}, null);
+        mTimer.advance(100);
+        mScheduler.request(new int[]{3}, null);
+        mTimer.advance(DEBOUNCE);
+        runDisk();
+
+        assertEquals(1, mRendered.size());
+        assertArrayEquals(new int[]{1, 2, 3}, mRendered.get(0));
+        assertEquals(3, mScheduler.getRequestedCount());
+        assertEquals(1, mScheduler.getExecutedCount());
+        assertEquals(3, mScheduler.getRedrawnCount());
+    }
+
+    @Test
+    public void requestForAll_coversSingleWidgetRequests() {
+        mScheduler.request(new int[]{4}, null);
+        mScheduler.requestAll();
+        mTimer.advance(DEBOUNCE);
+        runDisk();
+
+        assertEquals(1, mRendered.size());
+        assertNull(mRendered.get(0));
+    }
+
+    @Test
+    public void steadyRequests_stillRunWithinTheMaximumDelay() {
+        final int[] done = new int[1];
+        mScheduler.request(new int[]{1}, new Runnable() {
+            @Override
+            public void run() {
+                done[0]++;
+            }
+        });
+        for (int i = 0; i < 6; i++){
+            mTimer.advance(DEBOUNCE - 50);
+            mScheduler.request(new int[]{1}, null);
+        }
+        runDisk();
+
+        assertEquals(1, mRendered.size());
+        assertEquals(1, done[0]);
+        assertEquals(7, mScheduler.getRequestedCount());
+    }
+
+    @Test
+    public void failedPass_finishesItsRequestsAndLaterPassesStillRun() {
+        final int[] done = new int[1];
+        mRenderFails = true;
+        mScheduler.request(new int[]{1}, new Runnable() {
+            @Override
+            public void run() {
+                done[0]++;
+            }
+        });
+        mTimer.advance(DEBOUNCE);
+        runDisk();
+        assertEquals(1, done[0]);
+
+        mRenderFails = false;
+        mScheduler.request(new int[]{2}, null);
+        mTimer.advance(DEBOUNCE);
+        runDisk();
+
+        assertEquals(1, mRendered.size());
+        assertArrayEquals(new int[]{2}, mRendered.get(0));
+        assertEquals(2, mScheduler.getExecutedCount());
+    }
+
+    private void runDisk(){
+        while (!mDiskQueue.isEmpty()) mDiskQueue.remove(0).run();
+    }
+
+    /* Runs the scheduled task once the clock passes its time */
+    private static class FakeTimer implements WidgetUpdateScheduler.Timer {
+        long mNow;
+        Runnable mTask;
+        long mDueAt;
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            mTask = task;
+            mDueAt = mNow + delayMillis;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (mTask == task) mTask = null;
+        }
+
+        void advance(long millis){
+            mNow += millis;
+            if (mTask != null && mNow >= mDueAt){
+                Runnable task = mTask;
+                mTask = null;
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/* Decoding the whole catalog, as the repository does for the saved file and every changed refresh */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogDecodeBenchmark {
+
+    @Param({"4", "100", "1000", "10000", "100000"})
+    public int recipes;
+
+    private final Gson mStreaming = JsonUtils.getGson();
+    private final Gson mReflective = new Gson();
+    private String mJson;
+
+    @Setup
+    public void setUp(){
+        mJson = mStreaming.toJson(Catalogs.build(recipes));
+    }
+
+    @Benchmark
+    public Recipe[] decodeStreaming(){
+        return mStreaming.fromJson(mJson, Recipe[].class);
+    }
+
+    @Benchmark
+    public Recipe[] decodeReflective(){
+        return mReflective.fromJson(mJson, Recipe[].class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.Step;
+
+/* Generated catalogs shaped like the recipe feed: about nine ingredients and ten steps a recipe */
+public final class Catalogs {
+
+    private static final int INGREDIENTS_PER_RECIPE = 9;
+    private static final int STEPS_PER_RECIPE = 10;
+    private static final String[] MEASURES = {"CUP", "TBLSP", "TSP", "K", "G", "OZ", "UNIT"};
+    private static final double[] QUANTITIES = {0.5, 1, 1.5, 2, 0.25, 3, 6, 0.333, 400, 12.5};
+
+    private Catalogs(){}
+
+    public static Recipe[] build(int size){
+        Recipe[] recipes = new Recipe[size];
+        for (int i = 0; i < size; i++) recipes[i] = recipe(i);
+        return recipes;
+    }
+
+    public static Recipe recipe(int index){
+        Recipe recipe = new Recipe();
+        recipe.setId(index + 1);
+        recipe.setName("Recipe " + index);
+        recipe.setServings(8);
+        recipe.setImage("");
+
+        Ingredient[] ingredients = new Ingredient[INGREDIENTS_PER_RECIPE];
+        for (int j = 0; j < ingredients.length; j++) ingredients[j] = ingredient(index + j);
+        recipe.setIngredients(ingredients);
+
+        Step[] steps = new Step[STEPS_PER_RECIPE];
+        for (int j = 0; j < steps.length; j++) steps[j] = step(j);
+        recipe.setSteps(steps);
+        return recipe;
+    }
+
+    public static Ingredient ingredient(int index){
+        Ingredient ingredient = new Ingredient();
+        ingredient.setQuantity(QUANTITIES[index % QUANTITIES.length]);
+        ingredient.setMeasure(MEASURES[index % MEASURES.length]);
+        ingredient.setIngredient("Ingredient " + index);
+        return ingredient;
+    }
+
+    public static Step step(int index){
+        Step step = new Step();
+        step.setId(index);
+        step.setShortDescription("Step " + index);
+        step.setDescription(index + ". Preheat the oven to 350°F. Butter a 9\" deep dish pie pan.");
+        step.setVideoURL(index % 2 == 0 ? "https://d17h27t6h515a5.cloudfront.net/topher/step" + index + ".mp4" : "");
+        step.setThumbnailURL("");
+        return step;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.data.Step;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/* Serialization of each model without a Parcel, through the same Gson the app stores them with */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelEncodeBenchmark {
+
+    private final Gson mGson = JsonUtils.getGson();
+    private Recipe mRecipe;
+    private Step mStep;
+    private Ingredient mIngredient;
+    private String mRecipeJson;
+    private String mStepJson;
+    private String mIngredientJson;
+
+    @Setup
+    public void setUp(){
+        mRecipe = Catalogs.recipe(0);
+        mStep = Catalogs.step(1);
+        mIngredient = Catalogs.ingredient(2);
+        mRecipeJson = mGson.toJson(mRecipe);
+        mStepJson = mGson.toJson(mStep);
+        mIngredientJson = mGson.toJson(mIngredient);
+    }
+
+    @Benchmark
+    public String encodeRecipe(){
+        return mGson.toJson(mRecipe);
+    }
+
+    @Benchmark
+    public String encodeStep(){
+        return mGson.toJson(mStep);
+    }
+
+    @Benchmark
+    public String encodeIngredient(){
+        return mGson.toJson(mIngredient);
+    }
+
+    @Benchmark
+    public Recipe decodeRecipe(){
+        return mGson.fromJson(mRecipeJson, Recipe.class);
+    }
+
+    @Benchmark
+    public Step decodeStep(){
+        return mGson.fromJson(mStepJson, Step.class);
+    }
+
+    @Benchmark
+    public Ingredient decodeIngredient(){
+        return mGson.fromJson(mIngredientJson, Ingredient.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.pantry.PantryMatch;
+import com.example.android.baking.pantry.PantryMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* Indexing the catalog's ingredients and ranking it against a 200 item pantry. Ingredient names are
+ * skewed so most recipes share a few common ones, like real catalogs. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PantryMatchBenchmark {
+
+    private static final int VOCABULARY = 5000;
+    private static final int PANTRY_ITEMS = 200;
+    private static final int MATCHES = 50;
+
+    @Param({"1000", "50000"})
+    public int recipes;
+
+    private Recipe[] mCatalog;
+    private PantryMatcher mMatcher;
+    private long[] mPantry;
+
+    @Setup
+    public void setUp(){
+        Random random = new Random(42);
+        mCatalog = Catalogs.build(recipes);
+        for (Recipe recipe : mCatalog){
+            for (Ingredient ingredient : recipe.getIngredients()) ingredient.setIngredient("ingredient " + skewed(random));
+        }
+        mMatcher = new PantryMatcher(mCatalog);
+
+        List<String> pantry = new ArrayList<>(PANTRY_ITEMS);
+        for (int i = 0; i < PANTRY_ITEMS; i++) pantry.add("ingredient " + skewed(random));
+        mPantry = mMatcher.pantryOf(pantry);
+    }
+
+    @Benchmark
+    public PantryMatcher buildMatcher(){
+        return new PantryMatcher(mCatalog);
+    }
+
+    @Benchmark
+    public List<PantryMatch> match(){
+        return mMatcher.match(mPantry, MATCHES);
+    }
+
+    private static int skewed(Random random){
+        double u = random.nextDouble();
+        return (int) (VOCABULARY * u * u * u);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.utils.QuantityFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/* Formatting every ingredient quantity of a recipe the way the ingredient list and widget rows do */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuantityFormatBenchmark {
+
+    private Ingredient[] mIngredients;
+
+    @Setup
+    public void setUp(){
+        Recipe recipe = Catalogs.recipe(0);
+        mIngredients = recipe.getIngredients();
+    }
+
+    @Benchmark
+    public void formatQuantities(Blackhole blackhole){
+        for (Ingredient ingredient : mIngredients) blackhole.consume(QuantityFormatter.format(ingredient.getQuantity()));
+    }
+
+    /* The old plain decimal formatting, kept as the baseline */
+    @Benchmark
+    public void formatQuantitiesAsDecimals(Blackhole blackhole){
+        for (Ingredient ingredient : mIngredients) blackhole.consume(String.valueOf(ingredient.getQuantity()));
+    }
+}
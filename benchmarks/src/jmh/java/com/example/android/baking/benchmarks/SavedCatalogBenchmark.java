@@ -0,0 +1,88 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.BinaryCatalog;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/* Opening the saved catalog from disk, as json through Gson the way it used to be saved and as the
+ * memory mapped binary catalog. The list rows case only needs each recipe's name. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SavedCatalogBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"4", "100", "1000", "10000", "100000"})
+    public int recipes;
+
+    private final Gson mGson = JsonUtils.getGson();
+    private File mJsonFile;
+    private File mBinaryFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Recipe[] catalog = Catalogs.build(recipes);
+        mJsonFile = File.createTempFile("recipe_catalog", ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(mJsonFile), UTF_8)){
+            mGson.toJson(catalog, writer);
+        }
+        mBinaryFile = File.createTempFile("recipe_catalog", ".bin");
+        BinaryCatalog.encode(catalog).writeTo(mBinaryFile);
+    }
+
+    @TearDown
+    public void tearDown(){
+        mJsonFile.delete();
+        mBinaryFile.delete();
+    }
+
+    @Benchmark
+    public Recipe[] openJson() throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(mJsonFile), UTF_8)){
+            return mGson.fromJson(reader, Recipe[].class);
+        }
+    }
+
+    @Benchmark
+    public Recipe[] openBinary() throws IOException {
+        return BinaryCatalog.open(mBinaryFile).readAll();
+    }
+
+    @Benchmark
+    public String[] openBinaryNames() throws IOException {
+        BinaryCatalog catalog = BinaryCatalog.open(mBinaryFile);
+        String[] names = new String[catalog.size()];
+        for (int i = 0; i < names.length; i++) names[i] = catalog.getName(i);
+        return names;
+    }
+
+    /* One recipe after process death, the json has to be decoded whole to find it */
+    @Benchmark
+    public Recipe openBinaryLastRecipe() throws IOException {
+        BinaryCatalog catalog = BinaryCatalog.open(mBinaryFile);
+        return catalog.readRecipe(catalog.indexOf(catalog.getId(catalog.size() - 1)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/* The round trip StepsActivity.saveRecipe writes to preferences and the widget reads back */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SavedRecipeBenchmark {
+
+    private final Gson mGson = JsonUtils.getGson();
+    private Recipe mRecipe;
+    private String mSavedJson;
+
+    @Setup
+    public void setUp(){
+        mRecipe = Catalogs.recipe(0);
+        mSavedJson = mGson.toJson(mRecipe);
+    }
+
+    @Benchmark
+    public String save(){
+        return mGson.toJson(mRecipe);
+    }
+
+    @Benchmark
+    public Recipe restore(){
+        return mGson.fromJson(mSavedJson, Recipe.class);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.baking.benchmarks;
+
+import com.example.android.baking.data.Ingredient;
+import com.example.android.baking.data.Recipe;
+import com.example.android.baking.shopping.ShoppingList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/* A weekly production plan, dozens of recipes each at a large batch size, merged into one list */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShoppingListBenchmark {
+
+    @Param({"4", "48", "500"})
+    public int recipeCount;
+
+    @Param({"8", "400"})
+    public int servings;
+
+    private Recipe[] mRecipes;
+
+    @Setup
+    public void setUp(){
+        mRecipes = Catalogs.build(recipeCount);
+    }
+
+    @Benchmark
+    public Ingredient[] mergePlan(){
+        ShoppingList list = new ShoppingList();
+        for (Recipe recipe : mRecipes) list.add(recipe, servings);
+        return list.build();
+    }
+}
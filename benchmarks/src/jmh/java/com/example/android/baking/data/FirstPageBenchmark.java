@@ -0,0 +1,77 @@
+package com.example.android.baking.data;
+
+import com.example.android.baking.benchmarks.Catalogs;
+import com.example.android.baking.utils.JsonUtils;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/* Time to the first screen of the recipe list, which the pager fills with page 0. A warm start reads
+ * the saved page from the page store, a cold start decodes what the server sent and saves the page.
+ * Lives in the data package to reach the package private page store. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FirstPageBenchmark {
+
+    // RecipePager.PAGE_SIZE, the pager itself needs a device
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100", "1000", "10000"})
+    public int recipes;
+
+    private final Gson mGson = JsonUtils.getGson();
+    private String mServedJson;
+    private File mWarmDirectory;
+    private File mColdDirectory;
+    private RecipePageStore mWarmStore;
+    private RecipePageStore mColdStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        Recipe[] catalog = Catalogs.build(recipes);
+        // Servers that ignore paging send the whole catalog for page 0
+        mServedJson = mGson.toJson(catalog);
+        mWarmDirectory = Files.createTempDirectory("recipe_pages").toFile();
+        mColdDirectory = Files.createTempDirectory("recipe_pages").toFile();
+        mWarmStore = new RecipePageStore(mWarmDirectory);
+        mColdStore = new RecipePageStore(mColdDirectory);
+        mWarmStore.write(0, PAGE_SIZE, Arrays.copyOf(catalog, PAGE_SIZE));
+    }
+
+    @TearDown
+    public void tearDown(){
+        for (File directory : new File[]{mWarmDirectory, mColdDirectory}){
+            File[] files = directory.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            directory.delete();
+        }
+    }
+
+    @Benchmark
+    public Recipe[] warmStart(){
+        return mWarmStore.read(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Recipe[] coldStart(){
+        Recipe[] served = mGson.fromJson(mServedJson, Recipe[].class);
+        Recipe[] page = Arrays.copyOf(served, Math.min(PAGE_SIZE, served.length));
+        mColdStore.write(0, PAGE_SIZE, page);
+        return page;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.baking.search;
+
+import com.example.android.baking.benchmarks.Catalogs;
+import com.example.android.baking.data.Recipe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/* Building the search index for the whole catalog, and the queries typed into the search box, which
+ * run once per keystroke and should fit in a frame. Lives in the search package to build private
+ * indexes rather than the shared one. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipeSearchBenchmark {
+
+    // A recipe name, a common ingredient word, a prefix and multi word queries from the steps
+    private static final String[] QUERIES = {"recipe 1", "ingredient", "preh", "oven 350", "butter pan"};
+
+    @Param({"100", "1000", "20000"})
+    public int recipes;
+
+    private Recipe[] mCatalog;
+    private RecipeSearchIndex mIndex;
+
+    @Setup
+    public void setUp(){
+        mCatalog = Catalogs.build(recipes);
+        mIndex = new RecipeSearchIndex();
+        mIndex.update(mCatalog);
+    }
+
+    @Benchmark
+    public RecipeSearchIndex buildIndex(){
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        index.update(mCatalog);
+        return index;
+    }
+
+    @Benchmark
+    public void query(Blackhole blackhole){
+        for (String query : QUERIES) blackhole.consume(mIndex.search(query));
+    }
+}
@@ -0,0 +1,16 @@
+package androidx.core.util;
+
+import java.util.Arrays;
+
+/* The two methods of androidx.core's ObjectsCompat the data classes use. androidx.core ships as an
+ * aar, which a plain JVM module cannot depend on, so the benchmarks compile against this instead. */
+public class ObjectsCompat {
+
+    public static boolean equals(Object a, Object b){
+        return a == b || (a != null && a.equals(b));
+    }
+
+    public static int hash(Object... values){
+        return Arrays.hashCode(values);
+    }
+}
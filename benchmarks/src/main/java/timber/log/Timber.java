@@ -0,0 +1,17 @@
+package timber.log;
+
+/* The logging calls of Timber the shared sources make. Timber ships as an aar, which a plain JVM module
+ * cannot depend on, so the benchmarks compile against this instead and log nothing. */
+public final class Timber {
+
+    private Timber(){}
+
+    public static void d(String message, Object... args){
+    }
+
+    public static void e(String message, Object... args){
+    }
+
+    public static void e(Throwable t, String message, Object... args){
+    }
+}